@@ -1,14 +1,17 @@
 import json
+import math
 import os
 import re
 import sys
+import time
 from typing import List, Tuple
 
 import torch
-from transformers import AutoModelForCausalLM, AutoTokenizer
+from transformers import AutoModelForCausalLM, AutoTokenizer, LogitsProcessor, LogitsProcessorList
 
 TOKEN_RE = re.compile(r"[a-zA-Z0-9]+")
 MAX_CITATIONS = 2
+EMPTY_ANSWER_CONFIDENCE = 0.35
 
 
 def emit_progress(progress: int, message: str) -> None:
@@ -47,15 +50,98 @@ def split_snippets(cv_text: str) -> List[str]:
     return snippets
 
 
-def choose_citations(question: str, snippets: List[str]) -> List[str]:
+def snippets_from_offsets(cv_text: str, offsets: List[int]) -> List[Tuple[int, str]]:
+    snippets = []
+    for index in range(len(offsets) // 2):
+        start, end = offsets[index * 2], offsets[index * 2 + 1]
+        if 0 <= start < end <= len(cv_text):
+            snippets.append((index, cv_text[start:end]))
+    return snippets
+
+
+def choose_citations(question: str, snippets: List[Tuple[int, str]]) -> List[Tuple[int, str]]:
     if not snippets:
-        return ["No text could be extracted from the CV."]
+        return []
 
-    ranked = sorted(snippets, key=lambda s: score_overlap(question, s), reverse=True)
+    ranked = sorted(snippets, key=lambda s: score_overlap(question, s[1]), reverse=True)
     top = ranked[:MAX_CITATIONS]
-    if score_overlap(question, top[0]) == 0:
+    if score_overlap(question, top[0][1]) == 0:
         top = [snippets[0]]
-    return [item[:220] + "..." if len(item) > 220 else item for item in top]
+    return top
+
+
+def parse_core_range(value: str) -> set[int]:
+    cores = set()
+    for part in (value or "").split(","):
+        part = part.strip()
+        if not part:
+            continue
+        if "-" in part:
+            first, last = part.split("-", 1)
+            cores.update(range(int(first), int(last) + 1))
+        else:
+            cores.add(int(part))
+    return cores
+
+
+def resolve_device() -> str:
+    requested = os.getenv("CVSUM_DEVICE", "auto").lower()
+    if requested == "cpu":
+        return "cpu"
+    if requested == "cuda" and not torch.cuda.is_available():
+        raise RuntimeError("CUDA was requested but no GPU is available on this node.")
+    return "cuda" if torch.cuda.is_available() else "cpu"
+
+
+def configure_cpu_runtime() -> dict:
+    optimized = os.getenv("CVSUM_CPU_PROFILE", "standard").lower() == "optimized"
+    runtime = {"profile": "optimized" if optimized else "standard", "threads": torch.get_num_threads()}
+    if not optimized:
+        return runtime
+
+    threads = max(1, int(os.getenv("CVSUM_CPU_THREADS", str(torch.get_num_threads()))))
+    torch.set_num_threads(threads)
+    try:
+        torch.set_num_interop_threads(1)
+    except RuntimeError:
+        pass
+    runtime["threads"] = threads
+
+    affinity = parse_core_range(os.getenv("CVSUM_CPU_AFFINITY", ""))
+    if affinity and hasattr(os, "sched_setaffinity"):
+        try:
+            os.sched_setaffinity(0, affinity)
+            runtime["affinity"] = sorted(affinity)
+        except OSError:
+            pass
+    return runtime
+
+
+def load_model(model_id: str, device: str, cpu_runtime: dict):
+    if device == "cuda":
+        model = AutoModelForCausalLM.from_pretrained(model_id, torch_dtype=torch.float16, device_map="auto")
+        model.eval()
+        return model, "float16", "none"
+
+    model = AutoModelForCausalLM.from_pretrained(model_id, torch_dtype=torch.float32)
+    model.to(device)
+    model.eval()
+
+    quantize = os.getenv("CVSUM_CPU_QUANTIZE", "true").lower() == "true"
+    if cpu_runtime["profile"] == "optimized" and quantize:
+        model = torch.ao.quantization.quantize_dynamic(model, {torch.nn.Linear}, dtype=torch.qint8)
+        return model, "float32", "int8-dynamic"
+    return model, "float32", "none"
+
+
+def describe_runtime(model_id: str, device: str, quantization: str, cpu_runtime: dict) -> str:
+    if device == "cuda":
+        return f"{model_id} (cuda)"
+    details = [device]
+    if quantization != "none":
+        details.append(quantization)
+    details.append(f"{cpu_runtime['threads']} threads")
+    return f"{model_id} ({', '.join(details)})"
 
 
 def build_prompt(cv_text: str, question: str) -> str:
@@ -71,6 +157,19 @@ def build_prompt(cv_text: str, question: str) -> str:
     return f"{system}\n\n{user}\n\nANSWER:"
 
 
+def build_summary_prompt(cv_text: str) -> str:
+    system = "You are an HR assistant. Summarize the candidate using only facts from this part of the CV."
+    user = f"CV TEXT:\n{cv_text}\n\nReturn at most three sentences covering roles, skills and experience."
+    return f"{system}\n\n{user}\n\nSUMMARY:"
+
+
+def build_reduce_prompt(summaries: List[str]) -> str:
+    system = "You are an HR assistant. Combine the partial summaries of one CV into a single candidate summary."
+    parts = "\n".join(f"PART {idx}: {summary}" for idx, summary in enumerate(summaries, start=1))
+    user = f"{parts}\n\nReturn at most four sentences without repeating facts."
+    return f"{system}\n\n{user}\n\nSUMMARY:"
+
+
 def render_input_text(tokenizer, prompt: str) -> str:
     if hasattr(tokenizer, "apply_chat_template"):
         messages = [
@@ -81,11 +180,37 @@ def render_input_text(tokenizer, prompt: str) -> str:
     return prompt
 
 
-def estimate_confidence(question: str, citations: List[str], token_confidence: float) -> float:
+class ChosenTokenLogprobs(LogitsProcessor):
+    def __init__(self):
+        self.steps = []
+
+    def __call__(self, input_ids, scores):
+        step = scores.float()
+        self.steps.append(step.max(dim=-1).values - torch.logsumexp(step, dim=-1))
+        return scores
+
+    def summary(self) -> dict:
+        if not self.steps:
+            return {"mean": math.log(0.5), "min": math.log(0.5), "tokens": 0}
+        logprobs = torch.cat(self.steps)
+        mean, minimum = torch.stack([logprobs.mean(), logprobs.min()]).tolist()
+        return {"mean": mean, "min": minimum, "tokens": len(self.steps)}
+
+
+def resolve_confidence_mode() -> str:
+    mode = os.getenv("CVSUM_CONFIDENCE_MODE", "logprob").lower()
+    return "softmax" if mode == "softmax" else "logprob"
+
+
+def citation_overlap(question: str, citations: List[str]) -> float:
     overlap = 0.0
     for citation in citations:
         overlap = max(overlap, score_overlap(question, citation))
+    return overlap
 
+
+def estimate_confidence(question: str, citations: List[str], token_confidence: float) -> float:
+    overlap = citation_overlap(question, citations)
     blended = (0.45 * overlap) + (0.55 * token_confidence)
     confidence = 0.2 + (0.78 * blended)
     return max(0.1, min(0.99, confidence))
@@ -105,28 +230,46 @@ def compute_token_confidence(scores, generated_ids) -> float:
     return sum(probs) / len(probs)
 
 
+class ContextOverflowError(ValueError):
+    pass
+
+
+def count_tokens(tokenizer, text: str) -> int:
+    return len(tokenizer(text, add_special_tokens=False)["input_ids"])
+
+
+def fit_cv_text(tokenizer, cv_text: str, prompts: List[str], max_input_tokens: int, allow_truncation: bool) -> str:
+    overhead = max(count_tokens(tokenizer, render_input_text(tokenizer, prompt)) for prompt in prompts)
+    budget = max(0, max_input_tokens - overhead)
+    cv_ids = tokenizer(cv_text, add_special_tokens=False)["input_ids"]
+    if len(cv_ids) <= budget:
+        return cv_text
+    if not allow_truncation:
+        raise ContextOverflowError(
+            f"CV text has {len(cv_ids)} tokens but only {budget} fit in HF_MAX_INPUT_TOKENS={max_input_tokens}."
+        )
+    return tokenizer.decode(cv_ids[:budget], skip_special_tokens=True)
+
+
 def generate_answer(
     model,
     tokenizer,
     device: str,
-    cv_text: str,
-    question: str,
+    prompt: str,
     max_input_tokens: int,
     max_new_tokens: int,
-) -> Tuple[str, float]:
-    prompt = build_prompt(cv_text, question)
+    confidence_mode: str,
+) -> Tuple[str, dict]:
     input_text = render_input_text(tokenizer, prompt)
 
-    encoded = tokenizer(
-        input_text,
-        return_tensors="pt",
-        truncation=True,
-        max_length=max_input_tokens,
-    )
+    encoded = tokenizer(input_text, return_tensors="pt")
+    if encoded["input_ids"].shape[-1] > max_input_tokens:
+        encoded = {k: v[:, -max_input_tokens:] for k, v in encoded.items()}
     if device == "cuda":
         encoded = {k: v.to(model.device) for k, v in encoded.items()}
 
-    with torch.no_grad():
+    tracker = ChosenTokenLogprobs() if confidence_mode == "logprob" else None
+    with torch.inference_mode():
         output = model.generate(
             **encoded,
             max_new_tokens=max_new_tokens,
@@ -135,56 +278,73 @@ def generate_answer(
             pad_token_id=tokenizer.pad_token_id,
             eos_token_id=tokenizer.eos_token_id,
             return_dict_in_generate=True,
-            output_scores=True,
+            output_scores=tracker is None,
+            logits_processor=LogitsProcessorList([tracker]) if tracker is not None else None,
         )
 
     input_len = encoded["input_ids"].shape[-1]
     generated_ids = output.sequences[0][input_len:]
     answer = tokenizer.decode(generated_ids, skip_special_tokens=True).strip()
-    token_confidence = compute_token_confidence(output.scores, generated_ids)
-
-    if not answer:
-        answer = "I could not confidently extract this answer from the CV."
-        token_confidence = min(token_confidence, 0.35)
-    return answer, token_confidence
-
-
-def main() -> None:
-    emit_progress(3, "Reading request payload.")
-    raw = sys.stdin.read()
-    if not raw:
-        raise ValueError("No input payload received.")
+    if tracker is not None:
+        token_stats = tracker.summary()
+    else:
+        token_stats = {"confidence": compute_token_confidence(output.scores, generated_ids)}
+    return answer, token_stats
 
-    payload = json.loads(raw)
-    cv_text = payload.get("cv_text", "")
-    questions = payload.get("questions", [])
 
+def load_runtime() -> dict:
     model_id = os.getenv("HF_MODEL_ID", "TinyLlama/TinyLlama-1.1B-Chat-v1.0")
-    max_input_tokens = int(os.getenv("HF_MAX_INPUT_TOKENS", "2048"))
-    max_new_tokens = int(os.getenv("HF_MAX_NEW_TOKENS", "180"))
-    max_cv_chars = int(os.getenv("HF_MAX_CV_CHARS", "10000"))
-    cv_excerpt = (cv_text or "")[:max_cv_chars]
-
-    device = "cuda" if torch.cuda.is_available() else "cpu"
-    dtype = torch.float16 if device == "cuda" else torch.float32
+    device = resolve_device()
+    cpu_runtime = configure_cpu_runtime() if device == "cpu" else {"profile": "gpu", "threads": 0}
 
+    load_started = time.perf_counter()
     emit_progress(12, f"Loading tokenizer ({model_id}).")
     tokenizer = AutoTokenizer.from_pretrained(model_id, use_fast=True)
     if tokenizer.pad_token is None:
         tokenizer.pad_token = tokenizer.eos_token
 
-    emit_progress(30, f"Loading model on {device}.")
-    model = AutoModelForCausalLM.from_pretrained(
-        model_id,
-        torch_dtype=dtype,
-        device_map="auto" if device == "cuda" else None,
+    emit_progress(30, f"Loading model on {device} ({cpu_runtime['profile']} profile).")
+    model, dtype_name, quantization = load_model(model_id, device, cpu_runtime)
+    return {
+        "model_id": model_id,
+        "device": device,
+        "cpu_runtime": cpu_runtime,
+        "tokenizer": tokenizer,
+        "model": model,
+        "dtype": dtype_name,
+        "quantization": quantization,
+        "confidence_mode": resolve_confidence_mode(),
+        "load_seconds": time.perf_counter() - load_started,
+    }
+
+
+def answer_request(runtime: dict, payload: dict, load_seconds: float) -> dict:
+    cv_text = payload.get("cv_text", "")
+    questions = payload.get("questions", [])
+
+    max_input_tokens = int(os.getenv("HF_MAX_INPUT_TOKENS", "2048"))
+    max_new_tokens = int(os.getenv("HF_MAX_NEW_TOKENS", "180"))
+    cv_text = cv_text or ""
+    is_map = payload.get("task") == "map"
+    inference_started = time.perf_counter()
+
+    prompts = [build_prompt("", question) for question in questions]
+    if is_map:
+        prompts.append(build_summary_prompt(""))
+    cv_excerpt = fit_cv_text(
+        runtime["tokenizer"],
+        cv_text,
+        prompts or [build_prompt("", "")],
+        max_input_tokens,
+        allow_truncation=not is_map or payload.get("truncate", False),
     )
-    if device != "cuda":
-        model.to(device)
-    model.eval()
 
     emit_progress(45, "Preparing citation snippets.")
-    snippets = split_snippets(cv_excerpt)
+    offsets = payload.get("snippet_offsets")
+    if offsets is not None:
+        snippets = snippets_from_offsets(cv_text, offsets)
+    else:
+        snippets = list(enumerate(split_snippets(cv_text)))
 
     answers = []
     total = max(len(questions), 1)
@@ -192,40 +352,142 @@ def main() -> None:
         phase_progress = 45 + int((idx - 1) / total * 45)
         emit_progress(phase_progress, f"Generating answer {idx}/{total}.")
 
-        answer, token_conf = generate_answer(
-            model=model,
-            tokenizer=tokenizer,
-            device=device,
-            cv_text=cv_excerpt,
-            question=question,
+        answer, token_stats = generate_answer(
+            model=runtime["model"],
+            tokenizer=runtime["tokenizer"],
+            device=runtime["device"],
+            prompt=build_prompt(cv_excerpt, question),
             max_input_tokens=max_input_tokens,
             max_new_tokens=max_new_tokens,
+            confidence_mode=runtime["confidence_mode"],
         )
-        citations = choose_citations(question, snippets)
-        confidence = estimate_confidence(question, citations, token_conf)
-        answers.append(
-            {
-                "question": question,
-                "answer": answer,
-                "confidence": confidence,
-                "citations": citations,
+        found = bool(answer)
+        if not found:
+            answer = "I could not confidently extract this answer from the CV."
+            if "mean" in token_stats:
+                token_stats["mean"] = min(token_stats["mean"], math.log(EMPTY_ANSWER_CONFIDENCE))
+            else:
+                token_stats["confidence"] = min(token_stats["confidence"], EMPTY_ANSWER_CONFIDENCE)
+        chosen = choose_citations(question, snippets)
+        cited_texts = [text for _, text in chosen]
+        item = {"question": question, "answer": answer, "found": found}
+        if "confidence" in token_stats:
+            item["confidence"] = estimate_confidence(question, cited_texts, token_stats["confidence"])
+        else:
+            item["tokenLogprob"] = {
+                "mean": round(token_stats["mean"], 4),
+                "min": round(token_stats["min"], 4),
+                "tokens": token_stats["tokens"],
             }
-        )
+            item["citationOverlap"] = round(citation_overlap(question, cited_texts), 4)
+        if offsets is not None:
+            item["citationSnippets"] = [index for index, _ in chosen]
+        else:
+            item["citations"] = [
+                text[:220] + "..." if len(text) > 220 else text for _, text in chosen
+            ] or ["No text could be extracted from the CV."]
+        answers.append(item)
+
+    if is_map:
+        emit_progress(92, "Summarizing CV part.")
+        summary = generate_summary(runtime, build_summary_prompt(cv_excerpt), max_input_tokens)
+    else:
+        preview = " ".join(cv_excerpt.split())[:350]
+        summary = f"Candidate summary from local Hugging Face model: {preview}"
+    output = build_output(runtime, summary, answers, load_seconds, inference_started)
+    emit_progress(100, "Inference complete.")
+    return output
+
+
+def reduce_request(runtime: dict, payload: dict, load_seconds: float) -> dict:
+    summaries = [summary for summary in payload.get("summaries", []) if summary]
+    max_input_tokens = int(os.getenv("HF_MAX_INPUT_TOKENS", "2048"))
+    inference_started = time.perf_counter()
 
-    preview = " ".join(cv_excerpt.split())[:350]
-    output = {
+    emit_progress(50, f"Combining {len(summaries)} partial summaries.")
+    summary = generate_summary(runtime, build_reduce_prompt(summaries), max_input_tokens) if summaries else ""
+    output = build_output(runtime, summary, [], load_seconds, inference_started)
+    emit_progress(100, "Inference complete.")
+    return output
+
+
+def generate_summary(runtime: dict, prompt: str, max_input_tokens: int) -> str:
+    summary, _ = generate_answer(
+        model=runtime["model"],
+        tokenizer=runtime["tokenizer"],
+        device=runtime["device"],
+        prompt=prompt,
+        max_input_tokens=max_input_tokens,
+        max_new_tokens=int(os.getenv("HF_MAX_SUMMARY_TOKENS", "160")),
+        confidence_mode=runtime["confidence_mode"],
+    )
+    return summary
+
+
+def build_output(runtime: dict, summary: str, answers: list, load_seconds: float, inference_started: float) -> dict:
+    cpu_runtime = runtime["cpu_runtime"]
+    return {
         "mockMode": False,
-        "summary": f"Candidate summary from local Hugging Face model: {preview}",
+        "summary": summary,
         "answers": answers,
-        "modelInfo": f"{model_id} ({device})",
+        "modelInfo": describe_runtime(runtime["model_id"], runtime["device"], runtime["quantization"], cpu_runtime),
+        "runtime": {
+            "device": runtime["device"],
+            "dtype": runtime["dtype"],
+            "quantization": runtime["quantization"],
+            "confidenceMode": runtime["confidence_mode"],
+            "profile": cpu_runtime["profile"],
+            "threads": cpu_runtime["threads"],
+            "loadSeconds": round(load_seconds, 3),
+            "inferenceSeconds": round(time.perf_counter() - inference_started, 3),
+        },
     }
-    emit_progress(100, "Inference complete.")
-    print(json.dumps(output))
+
+
+def handle_request(runtime: dict, payload: dict, load_seconds: float) -> dict:
+    if payload.get("task") == "reduce":
+        return reduce_request(runtime, payload, load_seconds)
+    return answer_request(runtime, payload, load_seconds)
+
+
+def main() -> None:
+    emit_progress(3, "Reading request payload.")
+    raw = sys.stdin.read()
+    if not raw:
+        raise ValueError("No input payload received.")
+
+    payload = json.loads(raw)
+    runtime = load_runtime()
+    print(json.dumps(handle_request(runtime, payload, runtime["load_seconds"])))
+
+
+def serve() -> None:
+    responses = sys.stdout
+    sys.stdout = sys.stderr
+    runtime = load_runtime()
+    ready = {"device": runtime["device"], "loadSeconds": round(runtime["load_seconds"], 3)}
+    sys.stderr.write(f"READY:{json.dumps(ready)}\n")
+    sys.stderr.flush()
+
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        try:
+            output = handle_request(runtime, json.loads(line), 0.0)
+        except ContextOverflowError as exc:
+            output = {"error": str(exc), "errorType": "context_overflow"}
+        except Exception as exc:
+            output = {"error": str(exc)}
+        responses.write(json.dumps(output) + "\n")
+        responses.flush()
 
 
 if __name__ == "__main__":
     try:
-        main()
+        if "--serve" in sys.argv[1:]:
+            serve()
+        else:
+            main()
     except Exception as exc:
         sys.stderr.write(f"ERROR:{exc}\n")
         sys.stderr.flush()
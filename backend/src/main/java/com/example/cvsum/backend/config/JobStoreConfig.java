@@ -0,0 +1,32 @@
+package com.example.cvsum.backend.config;
+
+import com.example.cvsum.backend.service.FileSystemJobStore;
+import com.example.cvsum.backend.service.InMemoryJobStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class JobStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cvsum.jobs.store", havingValue = "memory", matchIfMissing = true)
+    public InMemoryJobStore inMemoryJobStore() {
+        return new InMemoryJobStore();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cvsum.jobs.store", havingValue = "file")
+    public FileSystemJobStore fileSystemJobStore(
+            ObjectMapper objectMapper,
+            @Value("${cvsum.jobs.shared-dir:data/jobs}") String sharedDir,
+            @Value("${cvsum.jobs.poll-millis:500}") long pollMillis
+    ) {
+        return new FileSystemJobStore(objectMapper, Path.of(sharedDir), Duration.ofMillis(pollMillis));
+    }
+}
@@ -1,20 +1,23 @@
 package com.example.cvsum.backend.controller;
 
+import com.example.cvsum.backend.model.CandidateSearchResponse;
+import com.example.cvsum.backend.model.DocumentCreatedResponse;
 import com.example.cvsum.backend.model.JobCreatedResponse;
 import com.example.cvsum.backend.model.SummarizeResponse;
 import com.example.cvsum.backend.service.CvProcessingJobService;
-import com.example.cvsum.backend.service.MockCvSummarizerService;
-import com.example.cvsum.backend.service.RealGpuCvSummarizerService;
-import com.example.cvsum.backend.util.PdfTextExtractor;
+import com.example.cvsum.backend.service.CvSearchService;
+import com.example.cvsum.backend.service.DocumentSessionService;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,44 +25,47 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/cv")
 public class CvSummarizerController {
 
-    private final MockCvSummarizerService mockService;
-    private final RealGpuCvSummarizerService realService;
-    private final PdfTextExtractor pdfTextExtractor;
     private final CvProcessingJobService jobService;
+    private final CvSearchService searchService;
+    private final DocumentSessionService documentService;
 
     public CvSummarizerController(
-            MockCvSummarizerService mockService,
-            RealGpuCvSummarizerService realService,
-            PdfTextExtractor pdfTextExtractor,
-            CvProcessingJobService jobService
+            CvProcessingJobService jobService,
+            CvSearchService searchService,
+            DocumentSessionService documentService
     ) {
-        this.mockService = mockService;
-        this.realService = realService;
-        this.pdfTextExtractor = pdfTextExtractor;
         this.jobService = jobService;
+        this.searchService = searchService;
+        this.documentService = documentService;
     }
 
     @PostMapping(path = "/summarize", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<SummarizeResponse> summarizeCv(
+    public CompletableFuture<ResponseEntity<SummarizeResponse>> summarizeCv(
             @RequestParam("file") @NotNull MultipartFile file,
             @RequestParam("questions") List<String> questions,
-            @RequestParam(name = "useMock", defaultValue = "true") boolean useMock
+            @RequestParam(name = "useMock", defaultValue = "true") boolean useMock,
+            @RequestParam(name = "deadlineSeconds", required = false) Integer deadlineSeconds
     ) {
         List<String> normalizedQuestions = validateAndNormalizeQuestions(questions);
         validateFile(file);
-        String cvText = pdfTextExtractor.extractText(file);
-
-        SummarizeResponse response = useMock
-                ? mockService.summarize(cvText, normalizedQuestions)
-                : realService.summarize(cvText, normalizedQuestions);
-
-        return ResponseEntity.ok(response);
+        if (deadlineSeconds != null && deadlineSeconds <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deadline must be a positive number of seconds.");
+        }
+        Duration deadline = deadlineSeconds == null ? null : Duration.ofSeconds(deadlineSeconds);
+        try {
+            return jobService.summarize(file.getBytes(), file.getOriginalFilename(), normalizedQuestions, useMock, deadline)
+                    .thenApply(ResponseEntity::ok);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file.", e);
+        }
     }
 
     @PostMapping(path = "/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -71,7 +77,7 @@ public class CvSummarizerController {
         List<String> normalizedQuestions = validateAndNormalizeQuestions(questions);
         validateFile(file);
         try {
-            String jobId = jobService.submitJob(file.getBytes(), normalizedQuestions, useMock);
+            String jobId = jobService.submitJob(file.getBytes(), file.getOriginalFilename(), normalizedQuestions, useMock);
             return ResponseEntity.accepted().body(new JobCreatedResponse(jobId));
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file.", e);
@@ -79,8 +85,49 @@ public class CvSummarizerController {
     }
 
     @GetMapping(path = "/jobs/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamJob(@PathVariable String jobId) {
-        return jobService.openProgressStream(jobId);
+    public SseEmitter streamJob(
+            @PathVariable String jobId,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return jobService.openProgressStream(jobId, lastEventId);
+    }
+
+    @PostMapping(path = "/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DocumentCreatedResponse> createDocument(@RequestParam("file") @NotNull MultipartFile file) {
+        validateFile(file);
+        try {
+            DocumentCreatedResponse created = documentService.create(file.getBytes(), file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file.", e);
+        }
+    }
+
+    @PostMapping(path = "/documents/{documentId}/questions")
+    public CompletableFuture<ResponseEntity<SummarizeResponse>> askDocument(
+            @PathVariable String documentId,
+            @RequestParam("questions") List<String> questions,
+            @RequestParam(name = "useMock", defaultValue = "true") boolean useMock
+    ) {
+        List<String> normalizedQuestions = validateAndNormalizeQuestions(questions);
+        return documentService.ask(documentId, normalizedQuestions, useMock).thenApply(ResponseEntity::ok);
+    }
+
+    @DeleteMapping(path = "/documents/{documentId}")
+    public ResponseEntity<Void> deleteDocument(@PathVariable String documentId) {
+        documentService.delete(documentId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(path = "/search")
+    public ResponseEntity<CandidateSearchResponse> searchCandidates(
+            @RequestParam("q") String query,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        if (!StringUtils.hasText(query)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required.");
+        }
+        return ResponseEntity.ok(searchService.search(query.trim(), limit));
     }
 
     private void validateFile(MultipartFile file) {
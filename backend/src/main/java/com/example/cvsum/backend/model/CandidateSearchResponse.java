@@ -0,0 +1,19 @@
+package com.example.cvsum.backend.model;
+
+import java.util.List;
+
+public record CandidateSearchResponse(
+        String query,
+        long tookMillis,
+        int totalCandidates,
+        List<Hit> hits
+) {
+    public record Hit(
+            String jobId,
+            String fileName,
+            double score,
+            List<String> matchedTerms,
+            List<String> citations
+    ) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.cvsum.backend.model;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class CvDocument {
+
+    private static final int MIN_SNIPPET_LENGTH = 21;
+    private static final CvDocument EMPTY = new CvDocument("", new int[0], 0);
+
+    private final String text;
+    private final int[] snippetBounds;
+    private final int snippetCount;
+    private volatile List<String> snippets;
+
+    private CvDocument(String text, int[] snippetBounds, int snippetCount) {
+        this.text = text;
+        this.snippetBounds = snippetBounds;
+        this.snippetCount = snippetCount;
+    }
+
+    public static CvDocument of(String rawText) {
+        if (rawText == null || rawText.isEmpty()) {
+            return EMPTY;
+        }
+
+        int length = rawText.length();
+        char[] normalized = new char[length];
+        int[] bounds = new int[16];
+        int size = 0;
+        int count = 0;
+        int segmentStart = 0;
+        char previous = 0;
+        boolean pendingSpace = false;
+        boolean pendingBreak = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = rawText.charAt(i);
+            if (isSpace(c)) {
+                pendingSpace = size > 0;
+                pendingBreak |= c == '\n' || previous == '.' || previous == '!' || previous == '?';
+                continue;
+            }
+            if (pendingSpace) {
+                if (pendingBreak) {
+                    if (size - segmentStart >= MIN_SNIPPET_LENGTH) {
+                        bounds = ensureCapacity(bounds, count);
+                        bounds[count * 2] = segmentStart;
+                        bounds[count * 2 + 1] = size;
+                        count++;
+                    }
+                    segmentStart = size + 1;
+                }
+                normalized[size++] = ' ';
+            }
+            pendingSpace = false;
+            pendingBreak = false;
+            normalized[size++] = c;
+            previous = c;
+        }
+
+        if (size - segmentStart >= MIN_SNIPPET_LENGTH) {
+            bounds = ensureCapacity(bounds, count);
+            bounds[count * 2] = segmentStart;
+            bounds[count * 2 + 1] = size;
+            count++;
+        } else if (count == 0 && size > 0) {
+            bounds[0] = 0;
+            bounds[1] = size;
+            count = 1;
+        }
+        return new CvDocument(new String(normalized, 0, size), bounds, count);
+    }
+
+    public static CvDocument restore(String text, int[] snippetOffsets) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        if (snippetOffsets == null || snippetOffsets.length % 2 != 0) {
+            throw new IllegalArgumentException("Snippet offsets must come in start and end pairs.");
+        }
+        return new CvDocument(text, snippetOffsets.clone(), snippetOffsets.length / 2);
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public boolean isBlank() {
+        return text.isEmpty();
+    }
+
+    public int snippetCount() {
+        return snippetCount;
+    }
+
+    public int snippetStart(int index) {
+        return snippetBounds[index * 2];
+    }
+
+    public int snippetEnd(int index) {
+        return snippetBounds[index * 2 + 1];
+    }
+
+    public int[] snippetOffsets() {
+        return Arrays.copyOf(snippetBounds, snippetCount * 2);
+    }
+
+    public CharSequence snippetView(int index) {
+        return CharBuffer.wrap(text, snippetStart(index), snippetEnd(index));
+    }
+
+    public List<String> snippets() {
+        List<String> materialized = snippets;
+        if (materialized == null) {
+            List<String> built = new ArrayList<>(snippetCount);
+            for (int i = 0; i < snippetCount; i++) {
+                built.add(text.substring(snippetStart(i), snippetEnd(i)));
+            }
+            materialized = Collections.unmodifiableList(built);
+            snippets = materialized;
+        }
+        return materialized;
+    }
+
+    public Span citation(int snippetIndex, int maxLength) {
+        return span(snippetStart(snippetIndex), snippetEnd(snippetIndex), maxLength);
+    }
+
+    public Span preview(int maxLength) {
+        return span(0, text.length(), maxLength);
+    }
+
+    public Span preview(Chunk chunk, int maxLength) {
+        return span(chunk.start(), chunk.end(), maxLength);
+    }
+
+    public CharSequence view(Span span) {
+        return CharBuffer.wrap(text, span.start(), span.end());
+    }
+
+    public String materialize(Span span) {
+        String value = text.substring(span.start(), span.end());
+        return span.truncated() ? value + "..." : value;
+    }
+
+    public Chunk whole() {
+        return new Chunk(0, text.length(), 0, snippetCount);
+    }
+
+    public List<Chunk> chunks(int maxChars) {
+        return chunks(0, text.length(), maxChars);
+    }
+
+    public List<Chunk> split(Chunk chunk) {
+        return chunks(chunk.start(), chunk.end(), (chunk.end() - chunk.start() + 1) / 2);
+    }
+
+    private List<Chunk> chunks(int from, int to, int maxChars) {
+        int limit = Math.max(1, maxChars);
+        List<Chunk> chunks = new ArrayList<>();
+        int start = from;
+        int snippet = 0;
+        while (start < to) {
+            int end = Math.min(to, start + limit);
+            if (end < to) {
+                int boundary = start;
+                for (int i = snippet; i < snippetCount && snippetEnd(i) <= end; i++) {
+                    boundary = Math.max(boundary, snippetEnd(i));
+                }
+                if (boundary == start) {
+                    boundary = text.lastIndexOf(' ', end);
+                }
+                end = boundary > start ? boundary : end;
+            }
+
+            while (snippet < snippetCount && snippetStart(snippet) < start) {
+                snippet++;
+            }
+            int firstSnippet = snippet;
+            while (snippet < snippetCount && snippetEnd(snippet) <= end) {
+                snippet++;
+            }
+            chunks.add(new Chunk(start, end, firstSnippet, snippet - firstSnippet));
+
+            start = end;
+            while (start < to && text.charAt(start) == ' ') {
+                start++;
+            }
+        }
+        return chunks;
+    }
+
+    public String chunkText(Chunk chunk) {
+        return text.substring(chunk.start(), chunk.end());
+    }
+
+    public int[] chunkSnippetOffsets(Chunk chunk) {
+        int[] offsets = new int[chunk.snippetCount() * 2];
+        for (int i = 0; i < chunk.snippetCount(); i++) {
+            offsets[i * 2] = snippetStart(chunk.firstSnippet() + i) - chunk.start();
+            offsets[i * 2 + 1] = snippetEnd(chunk.firstSnippet() + i) - chunk.start();
+        }
+        return offsets;
+    }
+
+    private static Span span(int start, int end, int maxLength) {
+        return end - start > maxLength ? new Span(start, start + maxLength, true) : new Span(start, end, false);
+    }
+
+    private static int[] ensureCapacity(int[] bounds, int count) {
+        return count * 2 + 2 > bounds.length ? Arrays.copyOf(bounds, bounds.length * 2) : bounds;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    public record Span(int start, int end, boolean truncated) {
+    }
+
+    public record Chunk(int start, int end, int firstSnippet, int snippetCount) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.cvsum.backend.model;
+
+public record DocumentCreatedResponse(String documentId, String fileName, int snippetCount, long idleTimeoutSeconds) {
+}
@@ -1,13 +1,47 @@
 package com.example.cvsum.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public record SummarizeResponse(
         boolean mockMode,
         String summary,
         List<AnswerItem> answers,
-        String modelInfo
+        String modelInfo,
+        @JsonInclude(JsonInclude.Include.NON_NULL) NearDuplicate nearDuplicate,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Degraded degraded,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String jobId
 ) {
+    public SummarizeResponse(boolean mockMode, String summary, List<AnswerItem> answers, String modelInfo) {
+        this(mockMode, summary, answers, modelInfo, null, null, null);
+    }
+
+    public SummarizeResponse(
+            boolean mockMode,
+            String summary,
+            List<AnswerItem> answers,
+            String modelInfo,
+            NearDuplicate nearDuplicate
+    ) {
+        this(mockMode, summary, answers, modelInfo, nearDuplicate, null, null);
+    }
+
+    public SummarizeResponse(
+            boolean mockMode,
+            String summary,
+            List<AnswerItem> answers,
+            String modelInfo,
+            NearDuplicate nearDuplicate,
+            Degraded degraded
+    ) {
+        this(mockMode, summary, answers, modelInfo, nearDuplicate, degraded, null);
+    }
+
+    public SummarizeResponse withJobId(String jobId) {
+        return new SummarizeResponse(mockMode, summary, answers, modelInfo, nearDuplicate, degraded, jobId);
+    }
+
     public record AnswerItem(
             String question,
             String answer,
@@ -15,4 +49,20 @@ public record SummarizeResponse(
             List<String> citations
     ) {
     }
+
+    public record NearDuplicate(
+            String matchedJobId,
+            double similarity,
+            int reusedAnswers,
+            int reansweredQuestions
+    ) {
+    }
+
+    public record Degraded(
+            String reason,
+            double latencyP95Seconds,
+            double targetP95Seconds,
+            boolean upgradePending
+    ) {
+    }
 }
@@ -1,183 +1,559 @@
 package com.example.cvsum.backend.service;
 
+import com.example.cvsum.backend.model.CvDocument;
 import com.example.cvsum.backend.model.JobProgressEvent;
 import com.example.cvsum.backend.model.SummarizeResponse;
+import com.example.cvsum.backend.service.ProgressStreamRegistry.StreamEvent;
 import com.example.cvsum.backend.util.PdfTextExtractor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.annotation.PreDestroy;
-import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class CvProcessingJobService {
 
-    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private static final Logger log = LoggerFactory.getLogger(CvProcessingJobService.class);
+
+    private final JobStore jobStore;
+    private final JobQueue jobQueue;
     private final PdfTextExtractor pdfTextExtractor;
     private final MockCvSummarizerService mockService;
     private final RealGpuCvSummarizerService realService;
+    private final ProgressStreamRegistry streamRegistry;
+    private final NearDuplicateService nearDuplicateService;
+    private final CvSearchService searchService;
+    private final InferenceSloController sloController;
+    private final String nodeId;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final Duration maxSummarizeDeadline;
+    private final Duration retention;
+    private final int capacity;
+    private final Map<String, JobRun> activeRuns = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SummarizeResponse>> waiters = new ConcurrentHashMap<>();
+    private final Map<String, Long> tailedVersions = new ConcurrentHashMap<>();
+    private final Counter purgedJobs;
+    private final Counter upgradeErrors;
+    private final ExecutorService workers;
+    private final ExecutorService degradedLane;
+    private final ScheduledExecutorService leaseRenewer;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running = true;
 
     public CvProcessingJobService(
+            JobStore jobStore,
+            JobQueue jobQueue,
             PdfTextExtractor pdfTextExtractor,
             MockCvSummarizerService mockService,
-            RealGpuCvSummarizerService realService
+            RealGpuCvSummarizerService realService,
+            ProgressStreamRegistry streamRegistry,
+            NearDuplicateService nearDuplicateService,
+            CvSearchService searchService,
+            InferenceSloController sloController,
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.jobs.node-id:}") String nodeId,
+            @Value("${cvsum.jobs.workers:4}") int workerCount,
+            @Value("${cvsum.jobs.lease-seconds:30}") int leaseSeconds,
+            @Value("${cvsum.jobs.max-attempts:2}") int maxAttempts,
+            @Value("${cvsum.jobs.poll-millis:500}") long pollMillis,
+            @Value("${cvsum.jobs.summarize-deadline-seconds:600}") int summarizeDeadlineSeconds,
+            @Value("${cvsum.jobs.retention-hours:24}") int retentionHours,
+            @Value("${cvsum.slo.degraded-workers:2}") int degradedWorkers,
+            @Value("${cvsum.slo.degraded-queue-capacity:32}") int degradedQueueCapacity
     ) {
+        this.jobStore = jobStore;
+        this.jobQueue = jobQueue;
         this.pdfTextExtractor = pdfTextExtractor;
         this.mockService = mockService;
         this.realService = realService;
+        this.streamRegistry = streamRegistry;
+        this.nearDuplicateService = nearDuplicateService;
+        this.searchService = searchService;
+        this.sloController = sloController;
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : "node-" + UUID.randomUUID().toString().substring(0, 8);
+        this.leaseDuration = Duration.ofSeconds(Math.max(3, leaseSeconds));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxSummarizeDeadline = Duration.ofSeconds(Math.max(1, summarizeDeadlineSeconds));
+        this.retention = Duration.ofHours(Math.max(1, retentionHours));
+        Gauge.builder("cvsum.jobs.queue.depth", jobQueue, JobQueue::depth).register(meterRegistry);
+        this.purgedJobs = Counter.builder("cvsum.jobs.purged").register(meterRegistry);
+        this.upgradeErrors = Counter.builder("cvsum.jobs.upgrade.errors").register(meterRegistry);
+
+        int boundedWorkers = Math.max(0, workerCount);
+        this.capacity = Math.max(1, boundedWorkers);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, boundedWorkers), runnable -> {
+            Thread thread = new Thread(runnable, "job-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < boundedWorkers; i++) {
+            workers.submit(this::pollForJobs);
+        }
+        int laneThreads = Math.max(1, degradedWorkers);
+        this.degradedLane = new ThreadPoolExecutor(laneThreads, laneThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, degradedQueueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "job-degraded");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-leases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewMillis = leaseDuration.toMillis() / 3;
+        leaseRenewer.scheduleWithFixedDelay(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.min(Duration.ofHours(1).toMillis(), retention.toMillis() / 4);
+        scheduler.scheduleWithFixedDelay(this::tailSharedState, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::dispatchUpgrades, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::purgeExpiredJobs, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
     }
 
-    public String submitJob(byte[] pdfBytes, List<String> questions, boolean useMock) {
+    public String submitJob(byte[] pdfBytes, String fileName, List<String> questions, boolean useMock) {
         String jobId = UUID.randomUUID().toString();
-        JobState state = new JobState(jobId);
-        jobs.put(jobId, state);
-        updateProgress(state, JobStatus.QUEUED, 0, "Job accepted.");
-
-        executor.submit(() -> runJob(state, pdfBytes, questions, useMock));
+        enqueue(jobId, new JobPayload(pdfBytes, fileName, questions, useMock));
         return jobId;
     }
 
-    public SseEmitter openProgressStream(String jobId) {
-        JobState state = jobs.get(jobId);
-        if (state == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found.");
-        }
+    public CompletableFuture<SummarizeResponse> summarize(
+            byte[] pdfBytes,
+            String fileName,
+            List<String> questions,
+            boolean useMock,
+            Duration deadline
+    ) {
+        return summarize(new JobPayload(pdfBytes, fileName, questions, useMock), deadline);
+    }
 
-        SseEmitter emitter = new SseEmitter(0L);
-        state.emitters.add(emitter);
-        emitter.onCompletion(() -> state.emitters.remove(emitter));
-        emitter.onTimeout(() -> {
-            state.emitters.remove(emitter);
-            emitter.complete();
+    public CompletableFuture<SummarizeResponse> summarize(JobPayload payload, Duration deadline) {
+        Duration bounded = deadline == null || deadline.compareTo(maxSummarizeDeadline) > 0 ? maxSummarizeDeadline : deadline;
+        String jobId = UUID.randomUUID().toString();
+        CompletableFuture<SummarizeResponse> future = new CompletableFuture<>();
+        waiters.put(jobId, future);
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> future.completeExceptionally(new ResponseStatusException(
+                HttpStatus.GATEWAY_TIMEOUT,
+                "CV was not processed within " + bounded.toSeconds() + "s; job " + jobId + " keeps running."
+        )), bounded.toMillis(), TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> {
+            waiters.remove(jobId, future);
+            timeout.cancel(false);
         });
-        emitter.onError((ex) -> state.emitters.remove(emitter));
 
-        sendProgressEvent(emitter, state);
-        if (state.status == JobStatus.COMPLETED && state.result != null) {
-            sendResultEvent(emitter, state.result);
-            emitter.complete();
-        } else if (state.status == JobStatus.FAILED) {
-            sendFailureEvent(emitter, state.errorMessage);
-            emitter.complete();
+        try {
+            enqueue(jobId, payload);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void enqueue(String jobId, JobPayload payload) {
+        JobRecord queued = JobRecord.queued(jobId);
+        jobStore.create(queued, payload);
+        if (!payload.useMock()) {
+            long predicted = sloController.predictedLatencyMillis(jobQueue.depth(), capacity);
+            if (sloController.shouldDegrade(predicted) && serveDegraded(queued, payload, predicted)) {
+                return;
+            }
+        }
+        jobQueue.enqueue(jobId);
+    }
+
+    private boolean serveDegraded(JobRecord queued, JobPayload payload, long predictedMillis) {
+        JobRun run = new JobRun(null, queued);
+        activeRuns.put(queued.jobId(), run);
+        try {
+            degradedLane.execute(() -> {
+                try {
+                    runDegraded(run, payload, predictedMillis);
+                } finally {
+                    activeRuns.remove(queued.jobId());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            activeRuns.remove(queued.jobId());
+            return false;
+        }
+    }
+
+    public SseEmitter openProgressStream(String jobId, String lastEventId) {
+        JobRecord record = jobStore.find(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found."));
+        return streamRegistry.open(
+                jobId,
+                parseEventId(lastEventId),
+                toStreamEvents(record),
+                record.isTerminal() && !record.isUpgradePending()
+        );
+    }
+
+    private long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private void pollForJobs() {
+        while (running) {
+            try {
+                Optional<JobLease> lease = jobQueue.lease(nodeId, leaseDuration, Duration.ofSeconds(1));
+                lease.ifPresent(this::process);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void process(JobLease lease) {
+        Optional<JobRecord> stored = jobStore.find(lease.jobId());
+        if (stored.isEmpty() || (stored.get().isTerminal() && !stored.get().isUpgradePending())) {
+            jobQueue.release(lease);
+            return;
+        }
+
+        JobRun run = new JobRun(lease, stored.get());
+        activeRuns.put(lease.jobId(), run);
+        try {
+            Optional<JobPayload> payload = jobStore.payload(lease.jobId());
+            if (run.record.isUpgradePending()) {
+                runUpgrade(run, payload);
+            } else if (lease.attempt() > maxAttempts) {
+                finish(run, run.record.failed("Job abandoned after " + maxAttempts + " attempts."));
+            } else if (payload.isEmpty()) {
+                finish(run, run.record.failed("Job payload is no longer available."));
+            } else {
+                runJob(run, payload.get());
+            }
+        } finally {
+            activeRuns.remove(lease.jobId());
+            jobQueue.release(run.lease);
+        }
+    }
+
+    private void runJob(JobRun run, JobPayload payload) {
+        String jobId = run.record.jobId();
+        try {
+            CvDocument document = extract(run, payload);
+            ProgressListener listener = inferenceListener(run);
+
+            SummarizeResponse result;
+            if (payload.useMock()) {
+                result = answer(jobId, payload, document, mockService, listener);
+            } else {
+                result = answer(jobId, payload, document,
+                        (cv, questions, progress) -> measuredInference(run, cv, questions, progress), listener);
+            }
+            finish(run, run.record.completed(result));
+            if (!payload.useMock()) {
+                sloController.responded(false);
+            }
+        } catch (Exception e) {
+            fail(run, e);
+        }
+    }
+
+    private SummarizeResponse measuredInference(
+            JobRun run,
+            CvDocument document,
+            List<String> questions,
+            ProgressListener listener
+    ) {
+        long startedAt = System.currentTimeMillis();
+        try {
+            return realService.summarize(document, questions, listener);
+        } finally {
+            sloController.finished(run.record.createdAt(), startedAt);
         }
+    }
 
-        return emitter;
+    private SummarizeResponse answer(
+            String jobId,
+            JobPayload payload,
+            CvDocument document,
+            CvSummarizerService summarizer,
+            ProgressListener listener
+    ) {
+        if (payload.documentId() != null) {
+            return summarizer.summarize(document, payload.questions(), listener);
+        }
+        return nearDuplicateService.summarize(jobId, document, payload.questions(), payload.useMock(),
+                pending -> summarizer.summarize(document, pending, listener));
     }
 
-    private void runJob(JobState state, byte[] pdfBytes, List<String> questions, boolean useMock) {
+    private void runDegraded(JobRun run, JobPayload payload, long predictedMillis) {
         try {
-            updateProgress(state, JobStatus.RUNNING, 5, "Extracting text from PDF.");
-            String cvText = pdfTextExtractor.extractText(pdfBytes);
-            updateProgress(state, JobStatus.RUNNING, 20, "PDF extracted. Starting inference.");
-
-            ProgressListener listener = (progress, message) -> {
-                int bounded = Math.max(0, Math.min(100, progress));
-                int mapped = 20 + (int) Math.round(bounded * 0.75);
-                updateProgress(state, JobStatus.RUNNING, mapped, message);
-            };
-
-            SummarizeResponse result = useMock
-                    ? mockService.summarize(cvText, questions, listener)
-                    : realService.summarize(cvText, questions, listener);
-
-            state.result = result;
-            updateProgress(state, JobStatus.COMPLETED, 100, "Processing completed.");
-            broadcastResult(state, result);
+            CvDocument document = extract(run, payload);
+            SummarizeResponse result = sloController.degrade(
+                    mockService.extract(document, payload.questions(), inferenceListener(run)), predictedMillis);
+            finish(run, run.record.completed(result));
+            sloController.responded(true);
+            if (result.degraded().upgradePending()) {
+                sloController.scheduleUpgrade(run.record.jobId());
+            }
         } catch (Exception e) {
+            fail(run, e);
+        }
+    }
+
+    private CvDocument extract(JobRun run, JobPayload payload) {
+        if (payload.document() != null) {
+            updateProgress(run, JobStatus.RUNNING, 20, "Document loaded. Starting inference.");
+            return payload.document();
+        }
+        updateProgress(run, JobStatus.RUNNING, 5, "Extracting text from PDF.");
+        CvDocument document = CvDocument.of(pdfTextExtractor.extractText(payload.pdfBytes()));
+        if (payload.documentId() == null) {
+            searchService.index(run.record.jobId(), payload.fileName(), document);
+        }
+        updateProgress(run, JobStatus.RUNNING, 20, "PDF extracted. Starting inference.");
+        return document;
+    }
+
+    private ProgressListener inferenceListener(JobRun run) {
+        return (progress, message) -> {
+            int bounded = Math.max(0, Math.min(100, progress));
+            int mapped = 20 + (int) Math.round(bounded * 0.75);
+            updateProgress(run, JobStatus.RUNNING, mapped, message);
+        };
+    }
+
+    private void fail(JobRun run, Exception e) {
+        if (e instanceof ResponseStatusException statusException) {
+            String error = statusException.getReason() == null ? "Processing failed." : statusException.getReason();
+            finish(run, run.record.failed(error, statusException.getStatusCode().value()));
+        } else {
             String error = e.getMessage() == null ? "Processing failed." : e.getMessage();
-            state.errorMessage = error;
-            updateProgress(state, JobStatus.FAILED, 100, error);
-            broadcastFailure(state, error);
+            finish(run, run.record.failed(error));
+        }
+    }
+
+    private void runUpgrade(JobRun run, Optional<JobPayload> payload) {
+        String jobId = run.record.jobId();
+        if (payload.isEmpty() || run.lease.attempt() > maxAttempts) {
+            finish(run, run.record.completed(sloController.withoutPendingUpgrade(run.record.result())));
+            return;
+        }
+
+        try {
+            CvDocument document = payload.get().document() != null
+                    ? payload.get().document()
+                    : CvDocument.of(pdfTextExtractor.extractText(payload.get().pdfBytes()));
+            SummarizeResponse result = answer(jobId, payload.get(), document, realService, ProgressListener.NO_OP);
+            finish(run, run.record.completed(result));
+        } catch (Exception e) {
+            log.warn("Upgrade of degraded job {} failed; keeping the degraded result", jobId, e);
+            upgradeErrors.increment();
+            finish(run, run.record.completed(sloController.withoutPendingUpgrade(run.record.result())));
+        }
+    }
+
+    private void dispatchUpgrades() {
+        for (String jobId : sloController.dispatchedUpgrades()) {
+            try {
+                Optional<JobRecord> record = jobStore.find(jobId);
+                if (record.isEmpty() || !record.get().isUpgradePending()) {
+                    sloController.upgradeFinished(jobId, record
+                            .map(upgraded -> upgraded.status() == JobStatus.COMPLETED && upgraded.result().degraded() == null)
+                            .orElse(false));
+                }
+            } catch (RuntimeException ignored) {
+                // The upgrade stays dispatched and its job record is read again on the next tick.
+            }
+        }
+        long predicted = sloController.predictedLatencyMillis(jobQueue.depth(), capacity);
+        for (String jobId : sloController.releaseUpgrades(predicted)) {
+            try {
+                jobQueue.enqueue(jobId);
+            } catch (RuntimeException e) {
+                sloController.requeueUpgrade(jobId);
+            }
+        }
+    }
+
+    private void updateProgress(JobRun run, JobStatus status, int progress, String message) {
+        synchronized (run) {
+            apply(run, run.record.withProgress(status, progress, message));
+        }
+    }
+
+    private void finish(JobRun run, JobRecord terminal) {
+        synchronized (run) {
+            apply(run, terminal);
+        }
+        if (!run.lost && !terminal.isUpgradePending()) {
+            jobStore.deletePayload(terminal.jobId());
         }
     }
 
-    private void updateProgress(JobState state, JobStatus status, int progress, String message) {
-        state.status = status;
-        state.progress = Math.max(0, Math.min(100, progress));
-        state.message = message;
-        broadcastProgress(state);
+    private void apply(JobRun run, JobRecord record) {
+        if (run.lost) {
+            return;
+        }
+        run.record = record;
+        jobStore.save(record);
+        publish(record);
     }
 
-    private void broadcastProgress(JobState state) {
-        for (SseEmitter emitter : state.emitters) {
-            sendProgressEvent(emitter, state);
+    private void publish(JobRecord record) {
+        for (StreamEvent event : toStreamEvents(record)) {
+            streamRegistry.publish(record.jobId(), event);
+        }
+        if (record.isTerminal()) {
+            if (!record.isUpgradePending()) {
+                streamRegistry.completeAll(record.jobId());
+            }
+            completeWaiter(record);
         }
     }
 
-    private void broadcastResult(JobState state, SummarizeResponse result) {
-        for (SseEmitter emitter : state.emitters) {
-            sendResultEvent(emitter, result);
-            emitter.complete();
+    private void completeWaiter(JobRecord record) {
+        CompletableFuture<SummarizeResponse> waiter = waiters.get(record.jobId());
+        if (waiter == null) {
+            return;
+        }
+        if (record.status() == JobStatus.COMPLETED) {
+            waiter.complete(record.result().withJobId(record.jobId()));
+        } else {
+            HttpStatus status = HttpStatus.resolve(record.errorStatus());
+            String error = record.errorMessage() == null ? "Processing failed." : record.errorMessage();
+            waiter.completeExceptionally(new ResponseStatusException(
+                    status == null ? HttpStatus.INTERNAL_SERVER_ERROR : status,
+                    error
+            ));
         }
-        state.emitters.clear();
     }
 
-    private void broadcastFailure(JobState state, String error) {
-        for (SseEmitter emitter : state.emitters) {
-            sendFailureEvent(emitter, error);
-            emitter.complete();
+    private List<StreamEvent> toStreamEvents(JobRecord record) {
+        List<StreamEvent> events = new ArrayList<>(2);
+        events.add(new StreamEvent(record.progressEventId(), "progress", new JobProgressEvent(
+                record.jobId(),
+                record.status().name(),
+                record.progress(),
+                record.message()
+        )));
+        if (record.status() == JobStatus.COMPLETED) {
+            events.add(new StreamEvent(record.terminalEventId(), "result", record.result()));
+        } else if (record.status() == JobStatus.FAILED) {
+            String error = record.errorMessage() == null ? "Processing failed." : record.errorMessage();
+            events.add(new StreamEvent(record.terminalEventId(), "failed", Map.of("error", error)));
         }
-        state.emitters.clear();
+        return events;
     }
 
-    private void sendProgressEvent(SseEmitter emitter, JobState state) {
-        sendEvent(emitter, "progress", new JobProgressEvent(
-                state.jobId,
-                state.status.name(),
-                state.progress,
-                state.message
-        ));
+    private void renewLeases() {
+        for (JobRun run : activeRuns.values()) {
+            if (run.lease == null) {
+                continue;
+            }
+            try {
+                Optional<JobLease> renewed = jobQueue.renew(run.lease, leaseDuration);
+                if (renewed.isPresent()) {
+                    run.lease = renewed.get();
+                } else {
+                    run.lost = true;
+                }
+            } catch (RuntimeException ignored) {
+                // A transient storage error is retried on the next renewal; the lease only lapses after expiry.
+            }
+        }
     }
 
-    private void sendResultEvent(SseEmitter emitter, SummarizeResponse result) {
-        sendEvent(emitter, "result", result);
+    private void tailSharedState() {
+        Set<String> watched = new LinkedHashSet<>(streamRegistry.activeJobIds());
+        watched.addAll(waiters.keySet());
+        watched.removeAll(activeRuns.keySet());
+        tailedVersions.keySet().retainAll(watched);
+        for (String jobId : watched) {
+            try {
+                long version = jobStore.stateVersion(jobId);
+                Long seen = tailedVersions.put(jobId, version);
+                if (seen == null || seen != version) {
+                    jobStore.find(jobId).ifPresent(this::publish);
+                }
+            } catch (RuntimeException e) {
+                tailedVersions.remove(jobId);
+            }
+        }
     }
 
-    private void sendFailureEvent(SseEmitter emitter, String error) {
-        sendEvent(emitter, "failed", Map.of("error", error));
+    private void purgeExpiredJobs() {
+        try {
+            purgedJobs.increment(jobStore.purge(System.currentTimeMillis() - retention.toMillis()));
+        } catch (RuntimeException ignored) {
+            // The next sweep retries; expired jobs only cost disk space until then.
+        }
     }
 
-    private void sendEvent(SseEmitter emitter, String eventName, Object payload) {
+    private void sleepQuietly() {
         try {
-            emitter.send(SseEmitter.event().name(eventName).data(payload));
-        } catch (IOException e) {
-            emitter.completeWithError(e);
+            Thread.sleep(leaseDuration.toMillis() / 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     @PreDestroy
     void shutdownExecutor() {
-        executor.shutdownNow();
-    }
-
-    private enum JobStatus {
-        QUEUED,
-        RUNNING,
-        COMPLETED,
-        FAILED
+        running = false;
+        leaseRenewer.shutdownNow();
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        degradedLane.shutdownNow();
     }
 
-    private static final class JobState {
-        private final String jobId;
-        private volatile JobStatus status = JobStatus.QUEUED;
-        private volatile int progress = 0;
-        private volatile String message = "Job accepted.";
-        private volatile SummarizeResponse result;
-        private volatile String errorMessage = "Processing failed.";
-        private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private static final class JobRun {
+        private volatile JobLease lease;
+        private volatile JobRecord record;
+        private volatile boolean lost;
 
-        private JobState(String jobId) {
-            this.jobId = jobId;
+        private JobRun(JobLease lease, JobRecord record) {
+            this.lease = lease;
+            this.record = record;
         }
     }
 }
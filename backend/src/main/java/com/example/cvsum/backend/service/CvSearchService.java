@@ -0,0 +1,410 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CandidateSearchResponse;
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.util.InvertedIndexSegment;
+import com.example.cvsum.backend.util.InvertedIndexSegment.Posting;
+import com.example.cvsum.backend.util.InvertedIndexSegment.SearchDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CvSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CvSearchService.class);
+    private static final String MANIFEST_FILE = "segments.manifest";
+    private static final int MAX_CITATIONS = 2;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    private final boolean enabled;
+    private final Path indexDir;
+    private final int flushDocs;
+    private final int maxSegments;
+    private final int mergeFactor;
+    private final int maxResults;
+    private final Counter maintenanceFailures;
+    private final ScheduledExecutorService maintenance;
+    private final Object writeLock = new Object();
+    private final List<SearchDocument> pending = new CopyOnWriteArrayList<>();
+    private final AtomicLong pendingVersion = new AtomicLong();
+    private volatile PendingView pendingView = new PendingView(0L, null);
+    private volatile List<InvertedIndexSegment> segments = List.of();
+    private volatile LiveView liveView;
+    private long nextGeneration = 1;
+
+    public CvSearchService(
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.search.enabled:true}") boolean enabled,
+            @Value("${cvsum.search.index-dir:data/search}") String indexDir,
+            @Value("${cvsum.search.flush-docs:32}") int flushDocs,
+            @Value("${cvsum.search.flush-interval-seconds:30}") int flushIntervalSeconds,
+            @Value("${cvsum.search.max-segments:8}") int maxSegments,
+            @Value("${cvsum.search.merge-factor:4}") int mergeFactor,
+            @Value("${cvsum.search.max-results:50}") int maxResults
+    ) {
+        this.enabled = enabled;
+        this.indexDir = Path.of(indexDir);
+        this.flushDocs = Math.max(1, flushDocs);
+        this.maxSegments = Math.max(1, maxSegments);
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.maxResults = Math.max(1, maxResults);
+        this.maintenanceFailures = Counter.builder("cvsum.search.maintenance.failures").register(meterRegistry);
+        Gauge.builder("cvsum.search.segments", this, service -> service.segments.size()).register(meterRegistry);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            loadSegments();
+            maintenance.scheduleWithFixedDelay(this::runMaintenance, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void index(String jobId, String fileName, CvDocument document) {
+        if (!enabled) {
+            return;
+        }
+        List<String> snippets = document.snippets();
+        if (snippets.isEmpty()) {
+            return;
+        }
+
+        pending.add(SearchDocument.of(jobId, fileName, System.currentTimeMillis(), snippets));
+        pendingVersion.incrementAndGet();
+        if (pending.size() >= flushDocs) {
+            maintenance.execute(this::runMaintenance);
+        }
+    }
+
+    public CandidateSearchResponse search(String query, int limit) {
+        if (!enabled) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Candidate search is disabled.");
+        }
+        long startedAt = System.nanoTime();
+        List<String> terms = List.copyOf(new LinkedHashSet<>(InvertedIndexSegment.tokenize(query)));
+        if (terms.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query has no searchable terms.");
+        }
+
+        List<InvertedIndexSegment> published = segments;
+        InvertedIndexSegment buffered = currentPendingView();
+        LiveView live = currentLiveView(published, buffered);
+        List<InvertedIndexSegment> sources = live.sources();
+
+        long totalDocs = live.docCount();
+        double averageLength = totalDocs == 0 ? 1.0 : Math.max(1.0, live.totalTokens() / (double) totalDocs);
+
+        List<List<List<Posting>>> postingsBySource = new ArrayList<>(sources.size());
+        long[] docFreqs = new long[terms.size()];
+        for (int s = 0; s < sources.size(); s++) {
+            BitSet superseded = live.superseded().get(s);
+            List<List<Posting>> postingsByTerm = new ArrayList<>(terms.size());
+            for (int t = 0; t < terms.size(); t++) {
+                List<Posting> postings = new ArrayList<>();
+                for (Posting posting : sources.get(s).postings(terms.get(t))) {
+                    if (!superseded.get(posting.doc())) {
+                        postings.add(posting);
+                    }
+                }
+                docFreqs[t] += postings.size();
+                postingsByTerm.add(postings);
+            }
+            postingsBySource.add(postingsByTerm);
+        }
+
+        List<ScoredDoc> scored = new ArrayList<>();
+        for (int s = 0; s < sources.size(); s++) {
+            InvertedIndexSegment source = sources.get(s);
+            Map<Integer, ScoredDoc> byDoc = new HashMap<>();
+            for (int t = 0; t < terms.size(); t++) {
+                double idf = Math.log(1.0 + (totalDocs - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+                for (Posting posting : postingsBySource.get(s).get(t)) {
+                    double length = source.tokenCount(posting.doc());
+                    double norm = posting.termFreq() + BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength);
+                    ScoredDoc doc = byDoc.computeIfAbsent(posting.doc(), ordinal -> new ScoredDoc(source, ordinal));
+                    doc.score += idf * posting.termFreq() * (BM25_K1 + 1) / norm;
+                    doc.matchedTerms.add(terms.get(t));
+                    for (int snippet : posting.snippets()) {
+                        doc.snippetHits.merge(snippet, 1, Integer::sum);
+                    }
+                }
+            }
+            scored.addAll(byDoc.values());
+        }
+        scored.sort(Comparator.comparingDouble((ScoredDoc doc) -> doc.score).reversed());
+
+        int boundedLimit = Math.max(1, Math.min(limit, maxResults));
+        Set<String> seenKeys = new HashSet<>();
+        List<CandidateSearchResponse.Hit> hits = new ArrayList<>();
+        for (ScoredDoc doc : scored) {
+            if (hits.size() >= boundedLimit) {
+                break;
+            }
+            SearchDocument document = doc.source.document(doc.ordinal);
+            if (!seenKeys.add(document.key())) {
+                continue;
+            }
+            hits.add(new CandidateSearchResponse.Hit(
+                    document.key(),
+                    document.name(),
+                    doc.score,
+                    List.copyOf(doc.matchedTerms),
+                    selectCitations(document, doc.snippetHits)
+            ));
+        }
+
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        return new CandidateSearchResponse(query, tookMillis, scored.size(), hits);
+    }
+
+    private List<String> selectCitations(SearchDocument document, Map<Integer, Integer> snippetHits) {
+        return snippetHits.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_CITATIONS)
+                .map(entry -> truncate(document.snippets().get(entry.getKey()), 220))
+                .toList();
+    }
+
+    private InvertedIndexSegment currentPendingView() {
+        long version = pendingVersion.get();
+        PendingView view = pendingView;
+        if (view.version() == version) {
+            return view.segment();
+        }
+        List<SearchDocument> snapshot = List.copyOf(pending);
+        InvertedIndexSegment segment = snapshot.isEmpty() ? null : InvertedIndexSegment.inMemory(snapshot);
+        pendingView = new PendingView(version, segment);
+        return segment;
+    }
+
+    private LiveView currentLiveView(List<InvertedIndexSegment> published, InvertedIndexSegment buffered) {
+        LiveView view = liveView;
+        if (view != null && view.published() == published && view.buffered() == buffered) {
+            return view;
+        }
+        view = LiveView.of(published, buffered);
+        liveView = view;
+        return view;
+    }
+
+    private static List<SearchDocument> latestPerKey(List<SearchDocument> documents) {
+        Map<String, SearchDocument> latest = new LinkedHashMap<>();
+        for (SearchDocument document : documents) {
+            latest.merge(document.key(), document, (older, newer) -> newer.indexedAt() >= older.indexedAt() ? newer : older);
+        }
+        return List.copyOf(latest.values());
+    }
+
+    private void runMaintenance() {
+        try {
+            flush();
+            mergeIfNeeded();
+        } catch (IOException | RuntimeException e) {
+            maintenanceFailures.increment();
+            log.warn("Search index flush or merge in {} failed", indexDir, e);
+        }
+    }
+
+    private void flush() throws IOException {
+        synchronized (writeLock) {
+            List<SearchDocument> documents = List.copyOf(pending);
+            if (documents.isEmpty()) {
+                return;
+            }
+            InvertedIndexSegment segment = InvertedIndexSegment.write(nextSegmentFile(), latestPerKey(documents));
+            List<InvertedIndexSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            publish(updated);
+            pending.removeAll(documents);
+            pendingVersion.incrementAndGet();
+        }
+    }
+
+    private void mergeIfNeeded() throws IOException {
+        synchronized (writeLock) {
+            while (segments.size() > maxSegments) {
+                List<InvertedIndexSegment> smallest = segments.stream()
+                        .sorted(Comparator.comparingInt(InvertedIndexSegment::docCount))
+                        .limit(mergeFactor)
+                        .toList();
+                LiveView live = LiveView.of(segments, null);
+                List<SearchDocument> documents = new ArrayList<>();
+                for (InvertedIndexSegment segment : smallest) {
+                    BitSet superseded = live.superseded().get(live.sources().indexOf(segment));
+                    for (int ordinal = 0; ordinal < segment.docCount(); ordinal++) {
+                        if (!superseded.get(ordinal)) {
+                            documents.add(segment.document(ordinal));
+                        }
+                    }
+                }
+
+                List<InvertedIndexSegment> updated = new ArrayList<>(segments);
+                updated.removeAll(smallest);
+                if (!documents.isEmpty()) {
+                    updated.add(InvertedIndexSegment.write(nextSegmentFile(), documents));
+                }
+                publish(updated);
+                for (InvertedIndexSegment segment : smallest) {
+                    Files.deleteIfExists(segment.file());
+                }
+            }
+        }
+    }
+
+    private void publish(List<InvertedIndexSegment> updated) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        for (InvertedIndexSegment segment : updated) {
+            manifest.append(segment.file().getFileName()).append('\n');
+        }
+        Path temp = indexDir.resolve(MANIFEST_FILE + ".tmp");
+        Files.writeString(temp, manifest, StandardCharsets.UTF_8);
+        Files.move(temp, indexDir.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segments = List.copyOf(updated);
+    }
+
+    private Path nextSegmentFile() {
+        return indexDir.resolve(String.format("segment-%08d.seg", nextGeneration++));
+    }
+
+    private void loadSegments() {
+        try {
+            Files.createDirectories(indexDir);
+            Path manifest = indexDir.resolve(MANIFEST_FILE);
+            Set<String> live = new HashSet<>();
+            List<InvertedIndexSegment> loaded = new ArrayList<>();
+            if (Files.exists(manifest)) {
+                for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                    String name = line.trim();
+                    if (!name.isEmpty() && Files.exists(indexDir.resolve(name))) {
+                        live.add(name);
+                        loaded.add(InvertedIndexSegment.open(indexDir.resolve(name)));
+                    }
+                }
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(indexDir, "segment-*")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (!live.contains(name)) {
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    long generation = Long.parseLong(name.substring("segment-".length(), name.indexOf('.')));
+                    nextGeneration = Math.max(nextGeneration, generation + 1);
+                }
+            }
+            segments = List.copyOf(loaded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open candidate search index in " + indexDir, e);
+        }
+    }
+
+    private String truncate(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        maintenance.shutdownNow();
+        if (enabled) {
+            runMaintenance();
+        }
+    }
+
+    private record PendingView(long version, InvertedIndexSegment segment) {
+    }
+
+    private record LiveView(
+            List<InvertedIndexSegment> published,
+            InvertedIndexSegment buffered,
+            List<InvertedIndexSegment> sources,
+            List<BitSet> superseded,
+            long docCount,
+            long totalTokens
+    ) {
+
+        private static LiveView of(List<InvertedIndexSegment> published, InvertedIndexSegment buffered) {
+            List<InvertedIndexSegment> sources = new ArrayList<>(published);
+            if (buffered != null) {
+                sources.add(buffered);
+            }
+            List<BitSet> superseded = new ArrayList<>(sources.size());
+            Map<String, long[]> latest = new HashMap<>();
+            for (int s = 0; s < sources.size(); s++) {
+                InvertedIndexSegment source = sources.get(s);
+                superseded.add(new BitSet(source.docCount()));
+                for (int ordinal = 0; ordinal < source.docCount(); ordinal++) {
+                    long indexedAt = source.indexedAt(ordinal);
+                    long[] current = latest.get(source.key(ordinal));
+                    if (current == null) {
+                        latest.put(source.key(ordinal), new long[]{s, ordinal, indexedAt});
+                    } else if (indexedAt >= current[2]) {
+                        superseded.get((int) current[0]).set((int) current[1]);
+                        current[0] = s;
+                        current[1] = ordinal;
+                        current[2] = indexedAt;
+                    } else {
+                        superseded.get(s).set(ordinal);
+                    }
+                }
+            }
+            long docCount = 0;
+            long totalTokens = 0;
+            for (long[] entry : latest.values()) {
+                docCount++;
+                totalTokens += sources.get((int) entry[0]).tokenCount((int) entry[1]);
+            }
+            return new LiveView(published, buffered, List.copyOf(sources), List.copyOf(superseded), docCount, totalTokens);
+        }
+    }
+
+    private static final class ScoredDoc {
+        private final InvertedIndexSegment source;
+        private final int ordinal;
+        private final Set<String> matchedTerms = new LinkedHashSet<>();
+        private final Map<Integer, Integer> snippetHits = new HashMap<>();
+        private double score;
+
+        private ScoredDoc(InvertedIndexSegment source, int ordinal) {
+            this.source = source;
+            this.ordinal = ordinal;
+        }
+    }
+}
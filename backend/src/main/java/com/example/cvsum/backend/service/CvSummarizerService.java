@@ -1,13 +1,18 @@
 package com.example.cvsum.backend.service;
 
+import com.example.cvsum.backend.model.CvDocument;
 import com.example.cvsum.backend.model.SummarizeResponse;
 
 import java.util.List;
 
 public interface CvSummarizerService {
-    SummarizeResponse summarize(String cvText, List<String> questions);
+    SummarizeResponse summarize(CvDocument document, List<String> questions, ProgressListener progressListener);
+
+    default SummarizeResponse summarize(String cvText, List<String> questions) {
+        return summarize(CvDocument.of(cvText), questions, ProgressListener.NO_OP);
+    }
 
     default SummarizeResponse summarize(String cvText, List<String> questions, ProgressListener progressListener) {
-        return summarize(cvText, questions);
+        return summarize(CvDocument.of(cvText), questions, progressListener);
     }
 }
@@ -0,0 +1,231 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.DocumentCreatedResponse;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.example.cvsum.backend.util.PdfTextExtractor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class DocumentSessionService {
+
+    private final PdfTextExtractor pdfTextExtractor;
+    private final CvProcessingJobService jobService;
+    private final Map<String, DocumentSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final long idleTimeoutNanos;
+    private final int maxDocuments;
+    private final long maxRetainedBytes;
+    private final Counter expiredSessions;
+    private final Counter evictedSessions;
+    private final ScheduledExecutorService scheduler;
+
+    public DocumentSessionService(
+            PdfTextExtractor pdfTextExtractor,
+            CvProcessingJobService jobService,
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.documents.idle-timeout-seconds:1800}") int idleTimeoutSeconds,
+            @Value("${cvsum.documents.max-documents:200}") int maxDocuments,
+            @Value("${cvsum.documents.max-memory-mb:64}") int maxMemoryMb
+    ) {
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.jobService = jobService;
+        this.idleTimeoutNanos = Duration.ofSeconds(Math.max(1, idleTimeoutSeconds)).toNanos();
+        this.maxDocuments = Math.max(1, maxDocuments);
+        this.maxRetainedBytes = Math.max(1, maxMemoryMb) * 1024L * 1024L;
+        this.expiredSessions = Counter.builder("cvsum.documents.removed").tag("reason", "expired").register(meterRegistry);
+        this.evictedSessions = Counter.builder("cvsum.documents.removed").tag("reason", "evicted").register(meterRegistry);
+        Gauge.builder("cvsum.documents.open", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("cvsum.documents.retained.bytes", retainedBytes, AtomicLong::get).register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long reapSeconds = Math.max(1, Math.min(60, idleTimeoutSeconds / 4));
+        scheduler.scheduleWithFixedDelay(this::reapIdleSessions, reapSeconds, reapSeconds, TimeUnit.SECONDS);
+    }
+
+    public DocumentCreatedResponse create(byte[] pdfBytes, String fileName) {
+        CvDocument document = CvDocument.of(pdfTextExtractor.extractText(pdfBytes));
+        String documentId = UUID.randomUUID().toString();
+        DocumentSession session = new DocumentSession(documentId, document, fileName);
+        if (session.retainedBytes.get() > maxRetainedBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Document is too large to keep in a session.");
+        }
+
+        sessions.put(documentId, session);
+        retainedBytes.addAndGet(session.retainedBytes.get());
+        evictOverCapacity(documentId);
+        return new DocumentCreatedResponse(documentId, fileName, document.snippetCount(), Duration.ofNanos(idleTimeoutNanos).toSeconds());
+    }
+
+    public CompletableFuture<SummarizeResponse> ask(String documentId, List<String> questions, boolean useMock) {
+        DocumentSession session = sessions.get(documentId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found or expired.");
+        }
+        session.touch();
+
+        List<String> pending = new ArrayList<>();
+        for (String question : questions) {
+            if (!session.answers.containsKey(answerKey(question, useMock)) && !pending.contains(question)) {
+                pending.add(question);
+            }
+        }
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(respond(session, questions, useMock, null));
+        }
+
+        JobPayload payload = new JobPayload(session.document, session.fileName, pending, useMock, documentId);
+        return jobService.summarize(payload, null).thenApply(fresh -> {
+            if (fresh.degraded() == null) {
+                remember(session, fresh, useMock);
+            }
+            return respond(session, questions, useMock, fresh);
+        });
+    }
+
+    private void remember(DocumentSession session, SummarizeResponse fresh, boolean useMock) {
+        session.latest.put(useMock, fresh);
+        long added = 0;
+        for (SummarizeResponse.AnswerItem item : fresh.answers()) {
+            if (session.answers.put(answerKey(item.question(), useMock), item) == null) {
+                added += estimateBytes(item);
+            }
+        }
+        session.retainedBytes.addAndGet(added);
+        if (sessions.get(session.documentId) == session) {
+            retainedBytes.addAndGet(added);
+            evictOverCapacity(session.documentId);
+        }
+    }
+
+    private SummarizeResponse respond(DocumentSession session, List<String> questions, boolean useMock, SummarizeResponse fresh) {
+        Map<String, SummarizeResponse.AnswerItem> freshAnswers = new HashMap<>();
+        if (fresh != null) {
+            for (SummarizeResponse.AnswerItem item : fresh.answers()) {
+                freshAnswers.put(answerKey(item.question(), useMock), item);
+            }
+        }
+        List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
+        for (String question : questions) {
+            String key = answerKey(question, useMock);
+            SummarizeResponse.AnswerItem answer = freshAnswers.getOrDefault(key, session.answers.get(key));
+            if (answer != null) {
+                answers.add(answer);
+            }
+        }
+        SummarizeResponse latest = fresh == null ? session.latest.get(useMock) : fresh;
+        return new SummarizeResponse(
+                useMock,
+                latest.summary(),
+                answers,
+                latest.modelInfo(),
+                null,
+                fresh == null ? null : fresh.degraded(),
+                fresh == null ? null : fresh.jobId()
+        );
+    }
+
+    public void delete(String documentId) {
+        DocumentSession session = sessions.remove(documentId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found or expired.");
+        }
+        retainedBytes.addAndGet(-session.retainedBytes.get());
+    }
+
+    public int openSessionCount() {
+        return sessions.size();
+    }
+
+    void reapIdleSessions() {
+        long now = System.nanoTime();
+        for (DocumentSession session : sessions.values()) {
+            if (now - session.lastAccessNanos > idleTimeoutNanos && sessions.remove(session.documentId, session)) {
+                retainedBytes.addAndGet(-session.retainedBytes.get());
+                expiredSessions.increment();
+            }
+        }
+    }
+
+    private void evictOverCapacity(String keepDocumentId) {
+        while (sessions.size() > maxDocuments || retainedBytes.get() > maxRetainedBytes) {
+            DocumentSession oldest = null;
+            for (DocumentSession session : sessions.values()) {
+                if (!session.documentId.equals(keepDocumentId)
+                        && (oldest == null || session.lastAccessNanos < oldest.lastAccessNanos)) {
+                    oldest = session;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (sessions.remove(oldest.documentId, oldest)) {
+                retainedBytes.addAndGet(-oldest.retainedBytes.get());
+                evictedSessions.increment();
+            }
+        }
+    }
+
+    private String answerKey(String question, boolean useMock) {
+        return (useMock ? "mock:" : "real:") + question.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long estimateBytes(SummarizeResponse.AnswerItem item) {
+        long chars = item.question().length() + item.answer().length();
+        for (String citation : item.citations()) {
+            chars += citation.length();
+        }
+        return chars * 2;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class DocumentSession {
+        private final String documentId;
+        private final CvDocument document;
+        private final String fileName;
+        private final Map<String, SummarizeResponse.AnswerItem> answers = new ConcurrentHashMap<>();
+        private final Map<Boolean, SummarizeResponse> latest = new ConcurrentHashMap<>();
+        private final AtomicLong retainedBytes = new AtomicLong();
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private DocumentSession(String documentId, CvDocument document, String fileName) {
+            this.documentId = documentId;
+            this.document = document;
+            this.fileName = fileName;
+            retainedBytes.set(document.text().length() * 2L + document.snippetCount() * 8L);
+        }
+
+        private void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class FileSystemJobStore implements JobStore, JobQueue {
+
+    private static final Map<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+    private final Path jobsDir;
+    private final Path queueDir;
+    private final Path leasesDir;
+    private final Path lockFile;
+    private final ReentrantLock jvmLock;
+    private final long pollMillis;
+
+    public FileSystemJobStore(ObjectMapper objectMapper, Path sharedDir, Duration pollInterval) {
+        this.objectMapper = objectMapper;
+        Path root = sharedDir.toAbsolutePath().normalize();
+        this.jobsDir = root.resolve("jobs");
+        this.queueDir = root.resolve("queue");
+        this.leasesDir = root.resolve("leases");
+        this.lockFile = root.resolve("queue.lock");
+        this.jvmLock = JVM_LOCKS.computeIfAbsent(lockFile, path -> new ReentrantLock());
+        this.pollMillis = Math.max(10L, pollInterval.toMillis());
+        try {
+            Files.createDirectories(jobsDir);
+            Files.createDirectories(queueDir);
+            Files.createDirectories(leasesDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not initialise shared job directory " + root, e);
+        }
+    }
+
+    @Override
+    public void create(JobRecord record, JobPayload payload) {
+        Path jobDir = jobsDir.resolve(record.jobId());
+        try {
+            Files.createDirectories(jobDir);
+            CvDocument document = payload.document();
+            if (document == null) {
+                Files.write(jobDir.resolve("payload.pdf"), payload.pdfBytes());
+            }
+            writeJson(jobDir.resolve("payload.json"), new StoredPayload(
+                    payload.fileName(),
+                    payload.questions(),
+                    payload.useMock(),
+                    payload.documentId(),
+                    document == null ? null : document.text(),
+                    document == null ? null : document.snippetOffsets()
+            ));
+            writeJson(jobDir.resolve("state.json"), record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store job " + record.jobId(), e);
+        }
+    }
+
+    @Override
+    public Optional<JobRecord> find(String jobId) {
+        return readJson(jobsDir.resolve(jobId).resolve("state.json"), JobRecord.class);
+    }
+
+    @Override
+    public void save(JobRecord record) {
+        try {
+            writeJson(jobsDir.resolve(record.jobId()).resolve("state.json"), record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not update job " + record.jobId(), e);
+        }
+    }
+
+    @Override
+    public Optional<JobPayload> payload(String jobId) {
+        Path jobDir = jobsDir.resolve(jobId);
+        Optional<StoredPayload> stored = readJson(jobDir.resolve("payload.json"), StoredPayload.class);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        StoredPayload meta = stored.get();
+        if (meta.text() != null) {
+            CvDocument document = CvDocument.restore(meta.text(), meta.snippetOffsets());
+            return Optional.of(new JobPayload(document, meta.fileName(), meta.questions(), meta.useMock(), meta.documentId()));
+        }
+        try {
+            byte[] pdfBytes = Files.readAllBytes(jobDir.resolve("payload.pdf"));
+            return Optional.of(new JobPayload(pdfBytes, meta.fileName(), meta.questions(), meta.useMock(), meta.documentId(), null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read payload of job " + jobId, e);
+        }
+    }
+
+    @Override
+    public void deletePayload(String jobId) {
+        Path jobDir = jobsDir.resolve(jobId);
+        try {
+            Files.deleteIfExists(jobDir.resolve("payload.pdf"));
+            Files.deleteIfExists(jobDir.resolve("payload.json"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete payload of job " + jobId, e);
+        }
+    }
+
+    @Override
+    public long stateVersion(String jobId) {
+        return find(jobId).map(JobRecord::lastEventId).orElse(0L);
+    }
+
+    @Override
+    public int purge(long updatedBefore) {
+        int purged = 0;
+        for (Path jobDir : listSorted(jobsDir)) {
+            String jobId = jobDir.getFileName().toString();
+            Optional<JobRecord> record;
+            try {
+                record = find(jobId);
+            } catch (UncheckedIOException e) {
+                continue;
+            }
+            if (record.isEmpty() || !record.get().isExpired(updatedBefore) || Files.exists(leasesDir.resolve(jobId))) {
+                continue;
+            }
+            try {
+                deleteRecursively(jobDir);
+                purged++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not purge job " + jobId, e);
+            }
+        }
+        return purged;
+    }
+
+    private void deleteRecursively(Path dir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Override
+    public void enqueue(String jobId) {
+        String entry = String.format("%013d-%s", System.currentTimeMillis(), jobId);
+        withQueueLock(() -> {
+            try {
+                Files.createFile(queueDir.resolve(entry));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not enqueue job " + jobId, e);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<JobLease> lease(String nodeId, Duration leaseDuration, Duration maxWait) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWait.toMillis();
+        while (true) {
+            Optional<JobLease> lease = withQueueLock(() -> tryLease(nodeId, leaseDuration));
+            long remaining = deadline - System.currentTimeMillis();
+            if (lease.isPresent() || remaining <= 0) {
+                return lease;
+            }
+            Thread.sleep(Math.min(pollMillis, remaining));
+        }
+    }
+
+    @Override
+    public Optional<JobLease> renew(JobLease lease, Duration leaseDuration) {
+        return withQueueLock(() -> {
+            Path leaseFile = leasesDir.resolve(lease.jobId());
+            Optional<JobLease> held = readJson(leaseFile, JobLease.class);
+            if (held.isEmpty() || !sameHolder(held.get(), lease)) {
+                return Optional.empty();
+            }
+            JobLease renewed = new JobLease(lease.jobId(), lease.nodeId(), lease.attempt(), System.currentTimeMillis() + leaseDuration.toMillis());
+            writeLease(renewed);
+            return Optional.of(renewed);
+        });
+    }
+
+    @Override
+    public void release(JobLease lease) {
+        withQueueLock(() -> {
+            Path leaseFile = leasesDir.resolve(lease.jobId());
+            Optional<JobLease> held = readJson(leaseFile, JobLease.class);
+            if (held.isPresent() && sameHolder(held.get(), lease)) {
+                try {
+                    Files.deleteIfExists(leaseFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not release lease of job " + lease.jobId(), e);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int depth() {
+        return listSorted(queueDir).size();
+    }
+
+    private Optional<JobLease> tryLease(String nodeId, Duration leaseDuration) {
+        long now = System.currentTimeMillis();
+        for (Path leaseFile : listSorted(leasesDir)) {
+            Optional<JobLease> held = readJson(leaseFile, JobLease.class);
+            if (held.isPresent() && held.get().expiresAt() < now) {
+                JobLease takeover = new JobLease(held.get().jobId(), nodeId, held.get().attempt() + 1, now + leaseDuration.toMillis());
+                writeLease(takeover);
+                return Optional.of(takeover);
+            }
+        }
+
+        for (Path entry : listSorted(queueDir)) {
+            String name = entry.getFileName().toString();
+            String jobId = name.substring(name.indexOf('-') + 1);
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not dequeue job " + jobId, e);
+            }
+            JobLease lease = new JobLease(jobId, nodeId, 1, now + leaseDuration.toMillis());
+            writeLease(lease);
+            return Optional.of(lease);
+        }
+        return Optional.empty();
+    }
+
+    private void writeLease(JobLease lease) {
+        try {
+            writeJson(leasesDir.resolve(lease.jobId()), lease);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write lease of job " + lease.jobId(), e);
+        }
+    }
+
+    private boolean sameHolder(JobLease held, JobLease lease) {
+        return held.nodeId().equals(lease.nodeId()) && held.attempt() == lease.attempt();
+    }
+
+    private <T> T withQueueLock(Supplier<T> action) {
+        jvmLock.lock();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            return action.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not lock shared job queue " + lockFile, e);
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+
+    private List<Path> listSorted(Path dir) {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, path -> !path.getFileName().toString().endsWith(".tmp"))) {
+            stream.forEach(entries::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + dir, e);
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    private void writeJson(Path target, Object value) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), value);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private <T> Optional<T> readJson(Path source, Class<T> type) {
+        try {
+            return Optional.of(objectMapper.readValue(Files.readAllBytes(source), type));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + source, e);
+        }
+    }
+
+    private record StoredPayload(
+            String fileName,
+            List<String> questions,
+            boolean useMock,
+            String documentId,
+            String text,
+            int[] snippetOffsets
+    ) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cvsum.backend.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class InMemoryJobStore implements JobStore, JobQueue {
+
+    private final Map<String, JobRecord> records = new ConcurrentHashMap<>();
+    private final Map<String, JobPayload> payloads = new ConcurrentHashMap<>();
+    private final Map<String, JobLease> leases = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+
+    @Override
+    public void create(JobRecord record, JobPayload payload) {
+        records.put(record.jobId(), record);
+        payloads.put(record.jobId(), payload);
+    }
+
+    @Override
+    public Optional<JobRecord> find(String jobId) {
+        return Optional.ofNullable(records.get(jobId));
+    }
+
+    @Override
+    public void save(JobRecord record) {
+        records.put(record.jobId(), record);
+    }
+
+    @Override
+    public Optional<JobPayload> payload(String jobId) {
+        return Optional.ofNullable(payloads.get(jobId));
+    }
+
+    @Override
+    public void deletePayload(String jobId) {
+        payloads.remove(jobId);
+    }
+
+    @Override
+    public long stateVersion(String jobId) {
+        JobRecord record = records.get(jobId);
+        return record == null ? 0L : record.lastEventId();
+    }
+
+    @Override
+    public int purge(long updatedBefore) {
+        int purged = 0;
+        for (JobRecord record : records.values()) {
+            if (record.isExpired(updatedBefore) && !leases.containsKey(record.jobId())
+                    && records.remove(record.jobId(), record)) {
+                payloads.remove(record.jobId());
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    @Override
+    public void enqueue(String jobId) {
+        pending.add(jobId);
+    }
+
+    @Override
+    public Optional<JobLease> lease(String nodeId, Duration leaseDuration, Duration maxWait) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        for (JobLease expired : leases.values()) {
+            if (expired.expiresAt() < now) {
+                JobLease takeover = new JobLease(expired.jobId(), nodeId, expired.attempt() + 1, now + leaseDuration.toMillis());
+                if (leases.replace(expired.jobId(), expired, takeover)) {
+                    return Optional.of(takeover);
+                }
+            }
+        }
+
+        String jobId = pending.poll(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        if (jobId == null) {
+            return Optional.empty();
+        }
+        JobLease lease = new JobLease(jobId, nodeId, 1, System.currentTimeMillis() + leaseDuration.toMillis());
+        leases.put(jobId, lease);
+        return Optional.of(lease);
+    }
+
+    @Override
+    public Optional<JobLease> renew(JobLease lease, Duration leaseDuration) {
+        JobLease renewed = new JobLease(lease.jobId(), lease.nodeId(), lease.attempt(), System.currentTimeMillis() + leaseDuration.toMillis());
+        JobLease current = leases.computeIfPresent(lease.jobId(), (jobId, held) -> sameHolder(held, lease) ? renewed : held);
+        return renewed.equals(current) ? Optional.of(renewed) : Optional.empty();
+    }
+
+    @Override
+    public void release(JobLease lease) {
+        leases.computeIfPresent(lease.jobId(), (jobId, held) -> sameHolder(held, lease) ? null : held);
+    }
+
+    @Override
+    public int depth() {
+        return pending.size();
+    }
+
+    private boolean sameHolder(JobLease held, JobLease lease) {
+        return held.nodeId().equals(lease.nodeId()) && held.attempt() == lease.attempt();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.SummarizeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class InferenceSloController {
+
+    private static final int MAX_SAMPLES = 512;
+
+    private final boolean enabled;
+    private final long targetMillis;
+    private final long windowMillis;
+    private final int minSamples;
+    private final boolean upgradeEnabled;
+    private final int upgradeConcurrency;
+    private final long[] sampleLatencies = new long[MAX_SAMPLES];
+    private final long[] sampleServiceTimes = new long[MAX_SAMPLES];
+    private final long[] sampleTimes = new long[MAX_SAMPLES];
+    private final Set<String> pendingUpgrades = new LinkedHashSet<>();
+    private final Set<String> dispatchedUpgrades = ConcurrentHashMap.newKeySet();
+    private final Counter fullResponses;
+    private final Counter degradedResponses;
+    private final Counter completedUpgrades;
+    private final Counter failedUpgrades;
+    private int nextSample;
+    private int sampleCount;
+
+    public InferenceSloController(
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.slo.enabled:true}") boolean enabled,
+            @Value("${cvsum.slo.target-p95-seconds:60}") int targetP95Seconds,
+            @Value("${cvsum.slo.window-seconds:300}") int windowSeconds,
+            @Value("${cvsum.slo.min-samples:5}") int minSamples,
+            @Value("${cvsum.slo.upgrade-enabled:true}") boolean upgradeEnabled,
+            @Value("${cvsum.slo.upgrade-concurrency:1}") int upgradeConcurrency
+    ) {
+        this.enabled = enabled;
+        this.targetMillis = Duration.ofSeconds(Math.max(1, targetP95Seconds)).toMillis();
+        this.windowMillis = Duration.ofSeconds(Math.max(1, windowSeconds)).toMillis();
+        this.minSamples = Math.max(1, minSamples);
+        this.upgradeEnabled = upgradeEnabled;
+        this.upgradeConcurrency = Math.max(1, upgradeConcurrency);
+
+        this.fullResponses = Counter.builder("cvsum.slo.responses").tag("mode", "full").register(meterRegistry);
+        this.degradedResponses = Counter.builder("cvsum.slo.responses").tag("mode", "degraded").register(meterRegistry);
+        this.completedUpgrades = Counter.builder("cvsum.slo.upgrades").tag("outcome", "completed").register(meterRegistry);
+        this.failedUpgrades = Counter.builder("cvsum.slo.upgrades").tag("outcome", "failed").register(meterRegistry);
+        Gauge.builder("cvsum.slo.latency.p95", this, controller -> controller.latencyP95Millis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("cvsum.slo.upgrades.pending", this, InferenceSloController::pendingUpgradeCount)
+                .register(meterRegistry);
+    }
+
+    public long predictedLatencyMillis(int queueDepth, int capacity) {
+        long[] p95 = percentiles();
+        long waves = 1 + Math.max(0, queueDepth) / Math.max(1, capacity);
+        return Math.max(p95[0], p95[1] * waves);
+    }
+
+    public boolean shouldDegrade(long predictedMillis) {
+        return enabled && predictedMillis > targetMillis;
+    }
+
+    public void responded(boolean degraded) {
+        (degraded ? degradedResponses : fullResponses).increment();
+    }
+
+    public SummarizeResponse degrade(SummarizeResponse extractive, long predictedMillis) {
+        long p95 = latencyP95Millis();
+        return new SummarizeResponse(
+                extractive.mockMode(),
+                extractive.summary(),
+                extractive.answers(),
+                extractive.modelInfo(),
+                extractive.nearDuplicate(),
+                new SummarizeResponse.Degraded(
+                        "Predicted inference latency of " + Math.round(predictedMillis / 1000.0) + "s is above the "
+                                + targetMillis / 1000 + "s target; answers are extracted citations.",
+                        p95 / 1000.0,
+                        targetMillis / 1000.0,
+                        isUpgradeEnabled()
+                )
+        );
+    }
+
+    public SummarizeResponse withoutPendingUpgrade(SummarizeResponse degraded) {
+        SummarizeResponse.Degraded flag = degraded.degraded();
+        return new SummarizeResponse(
+                degraded.mockMode(),
+                degraded.summary(),
+                degraded.answers(),
+                degraded.modelInfo(),
+                degraded.nearDuplicate(),
+                new SummarizeResponse.Degraded(flag.reason(), flag.latencyP95Seconds(), flag.targetP95Seconds(), false)
+        );
+    }
+
+    public void finished(long queuedAtMillis, long startedAtMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (sampleLatencies) {
+            sampleLatencies[nextSample] = Math.max(0, now - queuedAtMillis);
+            sampleServiceTimes[nextSample] = Math.max(0, now - startedAtMillis);
+            sampleTimes[nextSample] = now;
+            nextSample = (nextSample + 1) % MAX_SAMPLES;
+            sampleCount = Math.min(sampleCount + 1, MAX_SAMPLES);
+        }
+    }
+
+    public long latencyP95Millis() {
+        return percentiles()[0];
+    }
+
+    private long[] percentiles() {
+        long now = System.currentTimeMillis();
+        long[] latencies;
+        long[] serviceTimes;
+        int count = 0;
+        synchronized (sampleLatencies) {
+            latencies = new long[sampleCount];
+            serviceTimes = new long[sampleCount];
+            for (int i = 0; i < sampleCount; i++) {
+                if (now - sampleTimes[i] <= windowMillis) {
+                    latencies[count] = sampleLatencies[i];
+                    serviceTimes[count++] = sampleServiceTimes[i];
+                }
+            }
+        }
+        if (count < minSamples) {
+            return new long[] {0, 0};
+        }
+        Arrays.sort(latencies, 0, count);
+        Arrays.sort(serviceTimes, 0, count);
+        int rank = (int) Math.ceil(count * 0.95) - 1;
+        return new long[] {latencies[rank], serviceTimes[rank]};
+    }
+
+    public boolean isUpgradeEnabled() {
+        return enabled && upgradeEnabled;
+    }
+
+    public void scheduleUpgrade(String jobId) {
+        synchronized (pendingUpgrades) {
+            pendingUpgrades.add(jobId);
+        }
+    }
+
+    public List<String> releaseUpgrades(long predictedMillis) {
+        List<String> released = new ArrayList<>();
+        synchronized (pendingUpgrades) {
+            if (pendingUpgrades.isEmpty() || predictedMillis > targetMillis) {
+                return released;
+            }
+            Iterator<String> iterator = pendingUpgrades.iterator();
+            while (iterator.hasNext() && dispatchedUpgrades.size() < upgradeConcurrency) {
+                String jobId = iterator.next();
+                iterator.remove();
+                dispatchedUpgrades.add(jobId);
+                released.add(jobId);
+            }
+        }
+        return released;
+    }
+
+    public void requeueUpgrade(String jobId) {
+        dispatchedUpgrades.remove(jobId);
+        scheduleUpgrade(jobId);
+    }
+
+    public List<String> dispatchedUpgrades() {
+        return List.copyOf(dispatchedUpgrades);
+    }
+
+    public void upgradeFinished(String jobId, boolean completed) {
+        if (dispatchedUpgrades.remove(jobId)) {
+            (completed ? completedUpgrades : failedUpgrades).increment();
+        }
+    }
+
+    public int pendingUpgradeCount() {
+        synchronized (pendingUpgrades) {
+            return pendingUpgrades.size();
+        }
+    }
+}
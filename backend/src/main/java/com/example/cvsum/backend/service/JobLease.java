@@ -0,0 +1,9 @@
+package com.example.cvsum.backend.service;
+
+public record JobLease(
+        String jobId,
+        String nodeId,
+        int attempt,
+        long expiresAt
+) {
+}
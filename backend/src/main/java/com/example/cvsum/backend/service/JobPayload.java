@@ -0,0 +1,22 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+
+import java.util.List;
+
+public record JobPayload(
+        byte[] pdfBytes,
+        String fileName,
+        List<String> questions,
+        boolean useMock,
+        String documentId,
+        CvDocument document
+) {
+    public JobPayload(byte[] pdfBytes, String fileName, List<String> questions, boolean useMock) {
+        this(pdfBytes, fileName, questions, useMock, null, null);
+    }
+
+    public JobPayload(CvDocument document, String fileName, List<String> questions, boolean useMock, String documentId) {
+        this(null, fileName, questions, useMock, documentId, document);
+    }
+}
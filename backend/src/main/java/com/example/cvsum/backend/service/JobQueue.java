@@ -0,0 +1,16 @@
+package com.example.cvsum.backend.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface JobQueue {
+    void enqueue(String jobId);
+
+    Optional<JobLease> lease(String nodeId, Duration leaseDuration, Duration maxWait) throws InterruptedException;
+
+    Optional<JobLease> renew(JobLease lease, Duration leaseDuration);
+
+    void release(JobLease lease);
+
+    int depth();
+}
@@ -0,0 +1,100 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record JobRecord(
+        String jobId,
+        JobStatus status,
+        int progress,
+        String message,
+        long progressEventId,
+        long terminalEventId,
+        SummarizeResponse result,
+        String errorMessage,
+        int errorStatus,
+        long createdAt,
+        long updatedAt
+) {
+    public static JobRecord queued(String jobId) {
+        long now = System.currentTimeMillis();
+        return new JobRecord(jobId, JobStatus.QUEUED, 0, "Job accepted.", 1L, 0L, null, null, 0, now, now);
+    }
+
+    public JobRecord withProgress(JobStatus newStatus, int newProgress, String newMessage) {
+        return new JobRecord(
+                jobId,
+                newStatus,
+                Math.max(0, Math.min(100, newProgress)),
+                newMessage,
+                lastEventId() + 1,
+                terminalEventId,
+                result,
+                errorMessage,
+                errorStatus,
+                createdAt,
+                System.currentTimeMillis()
+        );
+    }
+
+    public JobRecord completed(SummarizeResponse newResult) {
+        JobRecord progressed = withProgress(JobStatus.COMPLETED, 100, "Processing completed.");
+        return new JobRecord(
+                jobId,
+                progressed.status,
+                progressed.progress,
+                progressed.message,
+                progressed.progressEventId,
+                progressed.progressEventId + 1,
+                newResult,
+                null,
+                0,
+                createdAt,
+                progressed.updatedAt
+        );
+    }
+
+    public JobRecord failed(String error) {
+        return failed(error, 500);
+    }
+
+    public JobRecord failed(String error, int status) {
+        JobRecord progressed = withProgress(JobStatus.FAILED, 100, error);
+        return new JobRecord(
+                jobId,
+                progressed.status,
+                progressed.progress,
+                progressed.message,
+                progressed.progressEventId,
+                progressed.progressEventId + 1,
+                null,
+                error,
+                status,
+                createdAt,
+                progressed.updatedAt
+        );
+    }
+
+    @JsonIgnore
+    public long lastEventId() {
+        return Math.max(progressEventId, terminalEventId);
+    }
+
+    @JsonIgnore
+    public boolean isTerminal() {
+        return status.isTerminal();
+    }
+
+    @JsonIgnore
+    public boolean isUpgradePending() {
+        return status == JobStatus.COMPLETED
+                && result != null
+                && result.degraded() != null
+                && result.degraded().upgradePending();
+    }
+
+    @JsonIgnore
+    public boolean isExpired(long updatedBefore) {
+        return isTerminal() && !isUpgradePending() && updatedAt < updatedBefore;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.cvsum.backend.service;
+
+import java.util.Optional;
+
+public interface JobStore {
+    void create(JobRecord record, JobPayload payload);
+
+    Optional<JobRecord> find(String jobId);
+
+    void save(JobRecord record);
+
+    Optional<JobPayload> payload(String jobId);
+
+    void deletePayload(String jobId);
+
+    long stateVersion(String jobId);
+
+    int purge(long updatedBefore);
+}
@@ -1,10 +1,12 @@
 package com.example.cvsum.backend.service;
 
+import com.example.cvsum.backend.model.CvDocument;
 import com.example.cvsum.backend.model.SummarizeResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -19,107 +21,98 @@ public class MockCvSummarizerService implements CvSummarizerService {
     private static final int MAX_CITATIONS = 2;
 
     @Override
-    public SummarizeResponse summarize(String cvText, List<String> questions) {
-        return summarize(cvText, questions, ProgressListener.NO_OP);
+    public SummarizeResponse summarize(CvDocument document, List<String> questions, ProgressListener progressListener) {
+        return answer(document, questions, progressListener, false);
     }
 
-    @Override
-    public SummarizeResponse summarize(String cvText, List<String> questions, ProgressListener progressListener) {
-        progressListener.onProgress(5, "Preparing mock analysis.");
-        String normalized = cvText == null ? "" : cvText.replaceAll("\\s+", " ").trim();
-        String shortPreview = normalized.length() > 300 ? normalized.substring(0, 300) + "..." : normalized;
+    public SummarizeResponse extract(CvDocument document, List<String> questions, ProgressListener progressListener) {
+        return answer(document, questions, progressListener, true);
+    }
 
-        String summary = shortPreview.isBlank()
+    private SummarizeResponse answer(
+            CvDocument document,
+            List<String> questions,
+            ProgressListener progressListener,
+            boolean extractive
+    ) {
+        progressListener.onProgress(5, extractive ? "Preparing extractive answers." : "Preparing mock analysis.");
+        String summary = document.isBlank()
                 ? "No text was extracted from the uploaded CV."
-                : "Candidate profile (mock): " + shortPreview;
+                : (extractive ? "Candidate profile (extract): " : "Candidate profile (mock): ")
+                        + document.materialize(document.preview(300));
 
         progressListener.onProgress(30, "Selecting supporting citations.");
-        List<String> snippets = extractSnippets(cvText);
         List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
         int totalQuestions = Math.max(questions.size(), 1);
         for (int i = 0; i < questions.size(); i++) {
             String q = questions.get(i);
-            List<String> citations = selectCitations(q, snippets, normalized);
-            double confidence = estimateConfidence(q, citations);
-            String answer = "Mock answer for: \"" + q + "\". "
-                    + "Switch off mock mode later to run real local GPU inference.";
-            answers.add(new SummarizeResponse.AnswerItem(q, answer, confidence, citations));
+            Set<String> questionTokens = tokenize(q);
+            List<CvDocument.Span> citations = selectCitations(questionTokens, document);
+            double confidence = estimateConfidence(questionTokens, citations, document);
+            List<String> citationTexts = materialize(citations, document);
+            String answer = extractive
+                    ? citationTexts.get(0)
+                    : "Mock answer for: \"" + q + "\". "
+                            + "Switch off mock mode later to run real local GPU inference.";
+            answers.add(new SummarizeResponse.AnswerItem(q, answer, confidence, citationTexts));
             int progress = 40 + (int) Math.round(((i + 1) / (double) totalQuestions) * 50);
-            progressListener.onProgress(progress, "Generated mock answer " + (i + 1) + "/" + totalQuestions + ".");
+            progressListener.onProgress(progress, (extractive ? "Extracted answer " : "Generated mock answer ")
+                    + (i + 1) + "/" + totalQuestions + ".");
         }
 
-        progressListener.onProgress(100, "Mock inference complete.");
+        progressListener.onProgress(100, extractive ? "Extractive answers ready." : "Mock inference complete.");
         return new SummarizeResponse(
-                true,
+                !extractive,
                 summary,
                 answers,
-                "mock-rule-engine-v1"
+                extractive ? "extractive-citations-v1" : "mock-rule-engine-v1"
         );
     }
 
-    private List<String> extractSnippets(String cvText) {
-        if (!StringUtils.hasText(cvText)) {
+    private List<CvDocument.Span> selectCitations(Set<String> questionTokens, CvDocument document) {
+        if (document.snippetCount() == 0) {
             return List.of();
         }
 
-        String[] rawParts = cvText.split("(?<=[.!?])\\s+|\\r?\\n");
-        List<String> snippets = new ArrayList<>();
-        for (String part : rawParts) {
-            String cleaned = part.replaceAll("\\s+", " ").trim();
-            if (cleaned.length() > 20) {
-                snippets.add(cleaned);
-            }
+        double[] scores = new double[document.snippetCount()];
+        Integer[] order = new Integer[document.snippetCount()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = scoreByTokenOverlap(questionTokens, document.snippetView(i));
+            order[i] = i;
         }
+        Arrays.sort(order, Comparator.comparingDouble((Integer index) -> scores[index]).reversed());
 
-        if (snippets.isEmpty()) {
-            String fallback = cvText.replaceAll("\\s+", " ").trim();
-            if (StringUtils.hasText(fallback)) {
-                snippets.add(fallback);
-            }
+        if (scores[order[0]] == 0.0) {
+            return List.of(document.citation(0, 220));
         }
 
-        return snippets;
-    }
-
-    private List<String> selectCitations(String question, List<String> snippets, String normalizedCvText) {
-        if (snippets.isEmpty()) {
-            return normalizedCvText.isBlank()
-                    ? List.of("No text could be extracted from the CV.")
-                    : List.of(truncate(normalizedCvText, 220));
+        List<CvDocument.Span> citations = new ArrayList<>();
+        for (int i = 0; i < Math.min(MAX_CITATIONS, order.length); i++) {
+            citations.add(document.citation(order[i], 220));
         }
+        return citations;
+    }
 
-        Set<String> questionTokens = tokenize(question);
-        List<String> ranked = snippets.stream()
-                .sorted(Comparator.comparingDouble((String snippet) -> scoreByTokenOverlap(questionTokens, snippet)).reversed())
-                .limit(MAX_CITATIONS)
-                .toList();
-
-        double bestScore = ranked.stream()
-                .mapToDouble(snippet -> scoreByTokenOverlap(questionTokens, snippet))
-                .max()
-                .orElse(0.0);
-
-        if (bestScore == 0.0) {
-            return List.of(truncate(snippets.get(0), 220));
+    private List<String> materialize(List<CvDocument.Span> citations, CvDocument document) {
+        if (citations.isEmpty()) {
+            return List.of("No text could be extracted from the CV.");
         }
-
-        List<String> citations = new ArrayList<>();
-        for (String snippet : ranked) {
-            citations.add(truncate(snippet, 220));
+        List<String> texts = new ArrayList<>(citations.size());
+        for (CvDocument.Span citation : citations) {
+            texts.add(document.materialize(citation));
         }
-        return citations;
+        return texts;
     }
 
-    private double estimateConfidence(String question, List<String> citations) {
+    private double estimateConfidence(Set<String> questionTokens, List<CvDocument.Span> citations, CvDocument document) {
         if (citations.isEmpty()) {
             return 0.25;
         }
 
-        Set<String> questionTokens = tokenize(question);
-        double bestScore = citations.stream()
-                .mapToDouble(citation -> scoreByTokenOverlap(questionTokens, citation))
-                .max()
-                .orElse(0.0);
+        double bestScore = 0.0;
+        for (CvDocument.Span citation : citations) {
+            bestScore = Math.max(bestScore, scoreByTokenOverlap(questionTokens, document.view(citation)));
+        }
 
         double confidence = 0.35 + (bestScore * 0.55);
         if (citations.size() > 1) {
@@ -129,7 +122,7 @@ public class MockCvSummarizerService implements CvSummarizerService {
         return Math.max(0.25, Math.min(0.98, confidence));
     }
 
-    private double scoreByTokenOverlap(Set<String> questionTokens, String text) {
+    private double scoreByTokenOverlap(Set<String> questionTokens, CharSequence text) {
         if (questionTokens.isEmpty() || !StringUtils.hasText(text)) {
             return 0.0;
         }
@@ -139,23 +132,16 @@ public class MockCvSummarizerService implements CvSummarizerService {
         return matches / (double) questionTokens.size();
     }
 
-    private Set<String> tokenize(String text) {
+    private Set<String> tokenize(CharSequence text) {
         Set<String> tokens = new HashSet<>();
         if (!StringUtils.hasText(text)) {
             return tokens;
         }
 
-        Matcher matcher = TOKEN_PATTERN.matcher(text.toLowerCase());
+        Matcher matcher = TOKEN_PATTERN.matcher(text);
         while (matcher.find()) {
-            tokens.add(matcher.group());
+            tokens.add(matcher.group().toLowerCase());
         }
         return tokens;
     }
-
-    private String truncate(String text, int maxLength) {
-        if (text.length() <= maxLength) {
-            return text;
-        }
-        return text.substring(0, maxLength) + "...";
-    }
 }
@@ -0,0 +1,244 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.example.cvsum.backend.util.MinHashLshIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Service
+public class NearDuplicateService {
+
+    private static final Logger log = LoggerFactory.getLogger(NearDuplicateService.class);
+    private static final long PRUNE_INTERVAL_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final double threshold;
+    private final boolean reanswerChangedOnly;
+    private final Path resultsDir;
+    private final MinHashLshIndex index;
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final Counter storeFailures;
+    private final Counter prunedEntries;
+    private final Object pruneLock = new Object();
+    private volatile long lastPruneMillis;
+
+    public NearDuplicateService(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.dedup.enabled:true}") boolean enabled,
+            @Value("${cvsum.dedup.threshold:0.85}") double threshold,
+            @Value("${cvsum.dedup.reanswer-changed-only:true}") boolean reanswerChangedOnly,
+            @Value("${cvsum.dedup.storage-dir:data/dedup}") String storageDir,
+            @Value("${cvsum.dedup.shingle-size:5}") int shingleSize,
+            @Value("${cvsum.dedup.bands:32}") int bands,
+            @Value("${cvsum.dedup.rows-per-band:4}") int rowsPerBand,
+            @Value("${cvsum.dedup.max-entries:5000}") int maxEntries,
+            @Value("${cvsum.dedup.max-age-days:30}") int maxAgeDays
+    ) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.reanswerChangedOnly = reanswerChangedOnly;
+        this.resultsDir = Path.of(storageDir).resolve("results");
+        this.index = enabled
+                ? new MinHashLshIndex(shingleSize, bands, rowsPerBand, Path.of(storageDir).resolve("minhash.idx"))
+                : null;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxAgeMillis = Duration.ofDays(Math.max(1, maxAgeDays)).toMillis();
+        this.storeFailures = Counter.builder("cvsum.dedup.store.failures").register(meterRegistry);
+        this.prunedEntries = Counter.builder("cvsum.dedup.pruned").register(meterRegistry);
+        if (enabled) {
+            prune();
+        }
+    }
+
+    public SummarizeResponse summarize(
+            String documentKey,
+            CvDocument document,
+            List<String> questions,
+            boolean useMock,
+            Function<List<String>, SummarizeResponse> answerer
+    ) {
+        if (!enabled) {
+            return answerer.apply(questions);
+        }
+
+        int[] signature = index.signature(document.text());
+        MinHashLshIndex.Match matched = null;
+        SummarizeResponse prior = null;
+        for (MinHashLshIndex.Match candidate : index.findMatches(signature, threshold)) {
+            Optional<SummarizeResponse> result = loadResult(candidate.key()).filter(r -> r.mockMode() == useMock);
+            if (result.isPresent()) {
+                matched = candidate;
+                prior = result.get();
+                break;
+            }
+        }
+
+        if (prior == null) {
+            SummarizeResponse result = answerer.apply(questions);
+            remember(documentKey, signature, result);
+            return result;
+        }
+
+        String normalizedText = document.text();
+        Map<String, SummarizeResponse.AnswerItem> priorAnswers = new HashMap<>();
+        for (SummarizeResponse.AnswerItem item : prior.answers()) {
+            priorAnswers.put(questionKey(item.question()), item);
+        }
+
+        List<String> pending = new ArrayList<>();
+        for (String question : questions) {
+            SummarizeResponse.AnswerItem previous = priorAnswers.get(questionKey(question));
+            if (previous == null || (reanswerChangedOnly && !citationsStillPresent(previous, normalizedText))) {
+                pending.add(question);
+            }
+        }
+
+        SummarizeResponse fresh = pending.isEmpty() ? null : answerer.apply(pending);
+        Map<String, SummarizeResponse.AnswerItem> freshAnswers = new HashMap<>();
+        if (fresh != null) {
+            for (SummarizeResponse.AnswerItem item : fresh.answers()) {
+                freshAnswers.put(questionKey(item.question()), item);
+            }
+        }
+
+        List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
+        for (String question : questions) {
+            String key = questionKey(question);
+            SummarizeResponse.AnswerItem answer = freshAnswers.getOrDefault(key, priorAnswers.get(key));
+            if (answer != null) {
+                answers.add(answer);
+            }
+        }
+
+        String summary = fresh == null ? prior.summary() : fresh.summary();
+        String modelInfo = fresh == null ? prior.modelInfo() : fresh.modelInfo();
+        remember(documentKey, signature, new SummarizeResponse(useMock, summary, answers, modelInfo));
+
+        return new SummarizeResponse(
+                useMock,
+                summary,
+                answers,
+                modelInfo,
+                new SummarizeResponse.NearDuplicate(
+                        matched.key(),
+                        matched.similarity(),
+                        questions.size() - pending.size(),
+                        pending.size()
+                )
+        );
+    }
+
+    private boolean citationsStillPresent(SummarizeResponse.AnswerItem item, String normalizedText) {
+        for (String citation : item.citations()) {
+            String text = citation.endsWith("...") ? citation.substring(0, citation.length() - 3) : citation;
+            if (!normalizedText.contains(text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String questionKey(String question) {
+        return question == null ? "" : question.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void remember(String documentKey, int[] signature, SummarizeResponse result) {
+        try {
+            Files.createDirectories(resultsDir);
+            objectMapper.writeValue(resultFile(documentKey).toFile(), result);
+            index.add(documentKey, signature);
+        } catch (IOException | UncheckedIOException e) {
+            storeFailures.increment();
+            log.warn("Could not store result of {} for near-duplicate detection", documentKey, e);
+            return;
+        }
+        if (index.size() > maxEntries || System.currentTimeMillis() - lastPruneMillis > PRUNE_INTERVAL_MILLIS) {
+            prune();
+        }
+    }
+
+    void prune() {
+        synchronized (pruneLock) {
+            long now = System.currentTimeMillis();
+            lastPruneMillis = now;
+            Set<Path> kept = new HashSet<>();
+            try {
+                if (Files.isDirectory(resultsDir)) {
+                    List<Path> files;
+                    try (Stream<Path> listing = Files.list(resultsDir)) {
+                        files = listing.filter(file -> file.getFileName().toString().endsWith(".json")).toList();
+                    }
+                    Map<Path, Long> modified = new HashMap<>();
+                    for (Path file : files) {
+                        modified.put(file, lastModified(file));
+                    }
+                    List<Path> newestFirst = new ArrayList<>(files);
+                    newestFirst.sort(Comparator.comparing((Path file) -> modified.get(file)).reversed());
+                    for (Path file : newestFirst) {
+                        if (kept.size() < maxEntries && now - modified.get(file) <= maxAgeMillis) {
+                            kept.add(file);
+                        } else {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+                int removed = index.retain(key -> kept.contains(resultFile(key)));
+                prunedEntries.increment(removed);
+            } catch (IOException | UncheckedIOException e) {
+                storeFailures.increment();
+                log.warn("Could not prune near-duplicate store in {}", resultsDir, e);
+            }
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Optional<SummarizeResponse> loadResult(String documentKey) {
+        Path file = resultFile(documentKey);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), SummarizeResponse.class));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Path resultFile(String documentKey) {
+        return resultsDir.resolve(documentKey + ".json");
+    }
+}
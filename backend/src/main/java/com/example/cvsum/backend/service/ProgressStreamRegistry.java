@@ -0,0 +1,219 @@
+package com.example.cvsum.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class ProgressStreamRegistry {
+
+    private final Map<String, List<Stream>> streamsByJob = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+    private final long maxStreamMillis;
+    private final long idleTimeoutNanos;
+    private final int maxStreamsPerJob;
+    private final int maxStreams;
+    private final Counter reapedStreams;
+
+    public ProgressStreamRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.sse.heartbeat-seconds:15}") int heartbeatSeconds,
+            @Value("${cvsum.sse.idle-timeout-seconds:300}") int idleTimeoutSeconds,
+            @Value("${cvsum.sse.max-stream-seconds:1800}") int maxStreamSeconds,
+            @Value("${cvsum.sse.max-streams-per-job:8}") int maxStreamsPerJob,
+            @Value("${cvsum.sse.max-streams:5000}") int maxStreams,
+            @Value("${cvsum.python.timeout-seconds:60}") int inferenceTimeoutSeconds
+    ) {
+        this.maxStreamMillis = Duration.ofSeconds(maxStreamSeconds).toMillis();
+        long minimumIdleSeconds = (long) inferenceTimeoutSeconds + 2L * heartbeatSeconds;
+        this.idleTimeoutNanos = Duration.ofSeconds(Math.max(idleTimeoutSeconds, minimumIdleSeconds)).toNanos();
+        this.maxStreamsPerJob = maxStreamsPerJob;
+        this.maxStreams = maxStreams;
+        this.reapedStreams = Counter.builder("cvsum.sse.streams.reaped").register(meterRegistry);
+        Gauge.builder("cvsum.sse.streams.open", openStreams, AtomicInteger::get).register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::heartbeatAndReap, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter open(String jobId, long lastEventId, List<StreamEvent> initialEvents, boolean completeAfterInitial) {
+        if (openStreams.incrementAndGet() > maxStreams) {
+            openStreams.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open progress streams.");
+        }
+
+        SseEmitter emitter = new SseEmitter(maxStreamMillis);
+        Stream stream = new Stream(jobId, emitter, lastEventId);
+        try {
+            streamsByJob.compute(jobId, (key, jobStreams) -> {
+                List<Stream> streams = jobStreams == null ? new CopyOnWriteArrayList<>() : jobStreams;
+                if (streams.size() >= maxStreamsPerJob) {
+                    throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open streams for this job.");
+                }
+                streams.add(stream);
+                return streams;
+            });
+        } catch (ResponseStatusException e) {
+            stream.release();
+            throw e;
+        }
+
+        emitter.onCompletion(() -> remove(stream));
+        emitter.onTimeout(() -> {
+            remove(stream);
+            emitter.complete();
+        });
+        emitter.onError(ex -> remove(stream));
+
+        for (StreamEvent event : initialEvents) {
+            deliver(stream, event);
+        }
+        if (completeAfterInitial) {
+            remove(stream);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    public void publish(String jobId, StreamEvent event) {
+        for (Stream stream : streamsFor(jobId)) {
+            deliver(stream, event);
+        }
+    }
+
+    public Set<String> activeJobIds() {
+        return Set.copyOf(streamsByJob.keySet());
+    }
+
+    public void completeAll(String jobId) {
+        List<Stream> jobStreams = streamsByJob.remove(jobId);
+        if (jobStreams == null) {
+            return;
+        }
+        for (Stream stream : jobStreams) {
+            if (stream.release()) {
+                stream.emitter.complete();
+            }
+        }
+    }
+
+    public int openStreamCount() {
+        return openStreams.get();
+    }
+
+    private List<Stream> streamsFor(String jobId) {
+        List<Stream> jobStreams = streamsByJob.get(jobId);
+        return jobStreams == null ? List.of() : jobStreams;
+    }
+
+    private void deliver(Stream stream, StreamEvent event) {
+        synchronized (stream) {
+            if (event.id() <= stream.lastEventId) {
+                return;
+            }
+            try {
+                stream.emitter.send(SseEmitter.event().id(String.valueOf(event.id())).name(event.name()).data(event.payload()));
+                stream.lastEventId = event.id();
+                stream.touch();
+            } catch (IOException | IllegalStateException e) {
+                remove(stream);
+                stream.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void heartbeatAndReap() {
+        long now = System.nanoTime();
+        for (List<Stream> jobStreams : streamsByJob.values()) {
+            for (Stream stream : jobStreams) {
+                if (now - stream.lastActivityNanos > idleTimeoutNanos) {
+                    reapedStreams.increment();
+                    remove(stream);
+                    stream.emitter.complete();
+                    continue;
+                }
+                synchronized (stream) {
+                    try {
+                        stream.emitter.send(SseEmitter.event().comment("heartbeat"));
+                        stream.touch();
+                    } catch (IOException | IllegalStateException e) {
+                        reapedStreams.increment();
+                        remove(stream);
+                        stream.emitter.completeWithError(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(Stream stream) {
+        if (!stream.release()) {
+            return;
+        }
+        streamsByJob.computeIfPresent(stream.jobId, (jobId, jobStreams) -> {
+            jobStreams.remove(stream);
+            return jobStreams.isEmpty() ? null : jobStreams;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        for (String jobId : List.copyOf(streamsByJob.keySet())) {
+            completeAll(jobId);
+        }
+    }
+
+    public record StreamEvent(long id, String name, Object payload) {
+    }
+
+    private final class Stream {
+        private final String jobId;
+        private final SseEmitter emitter;
+        private long lastEventId;
+        private volatile long lastActivityNanos = System.nanoTime();
+        private volatile boolean released;
+
+        private Stream(String jobId, SseEmitter emitter, long lastEventId) {
+            this.jobId = jobId;
+            this.emitter = emitter;
+            this.lastEventId = lastEventId;
+        }
+
+        private void touch() {
+            lastActivityNanos = System.nanoTime();
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            openStreams.decrementAndGet();
+            return true;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.cvsum.backend.service;
 
+import com.example.cvsum.backend.model.CvDocument;
 import com.example.cvsum.backend.model.SummarizeResponse;
 import com.example.cvsum.backend.util.PythonBridgeClient;
 import org.springframework.stereotype.Service;
@@ -16,12 +17,7 @@ public class RealGpuCvSummarizerService implements CvSummarizerService {
     }
 
     @Override
-    public SummarizeResponse summarize(String cvText, List<String> questions) {
-        return summarize(cvText, questions, ProgressListener.NO_OP);
-    }
-
-    @Override
-    public SummarizeResponse summarize(String cvText, List<String> questions, ProgressListener progressListener) {
-        return pythonBridgeClient.runInference(cvText, questions, progressListener);
+    public SummarizeResponse summarize(CvDocument document, List<String> questions, ProgressListener progressListener) {
+        return pythonBridgeClient.runInference(document, questions, progressListener);
     }
 }
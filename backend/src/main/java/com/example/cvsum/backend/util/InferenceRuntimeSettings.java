@@ -0,0 +1,168 @@
+package com.example.cvsum.backend.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Component
+public class InferenceRuntimeSettings {
+
+    private static final int DEFAULT_CPU_THREADS_PER_WORKER = 4;
+
+    private final String device;
+    private final String cpuProfile;
+    private final boolean cpuQuantize;
+    private final boolean pinCores;
+    private final int availableCores;
+    private final int threadsPerWorker;
+    private final int maxWorkers;
+    private final int gpuDevices;
+    private final String confidenceMode;
+
+    @Autowired
+    public InferenceRuntimeSettings(
+            @Value("${cvsum.python.device:auto}") String device,
+            @Value("${cvsum.python.cpu-profile:standard}") String cpuProfile,
+            @Value("${cvsum.python.cpu-quantize:true}") boolean cpuQuantize,
+            @Value("${cvsum.python.cpu-pin-cores:true}") boolean pinCores,
+            @Value("${cvsum.python.cpu-threads-per-worker:0}") int configuredThreadsPerWorker,
+            @Value("${cvsum.python.max-workers:0}") int configuredMaxWorkers,
+            @Value("${cvsum.python.gpu-devices:0}") int configuredGpuDevices,
+            @Value("${cvsum.python.gpu-workers-per-device:1}") int gpuWorkersPerDevice,
+            @Value("${cvsum.python.confidence-mode:logprob}") String confidenceMode
+    ) {
+        this(device, cpuProfile, cpuQuantize, pinCores, configuredThreadsPerWorker, configuredMaxWorkers,
+                Runtime.getRuntime().availableProcessors(),
+                configuredGpuDevices > 0 ? configuredGpuDevices : detectGpuDevices(),
+                gpuWorkersPerDevice, confidenceMode);
+    }
+
+    InferenceRuntimeSettings(
+            String device,
+            String cpuProfile,
+            boolean cpuQuantize,
+            boolean pinCores,
+            int configuredThreadsPerWorker,
+            int configuredMaxWorkers,
+            int availableCores,
+            int availableGpus,
+            int gpuWorkersPerDevice,
+            String confidenceMode
+    ) {
+        this.device = normalizeDevice(device);
+        this.cpuProfile = normalizeProfile(cpuProfile);
+        this.cpuQuantize = cpuQuantize;
+        this.pinCores = pinCores;
+        this.availableCores = Math.max(1, availableCores);
+        this.threadsPerWorker = configuredThreadsPerWorker > 0
+                ? Math.min(configuredThreadsPerWorker, this.availableCores)
+                : Math.min(DEFAULT_CPU_THREADS_PER_WORKER, this.availableCores);
+        this.gpuDevices = "cuda".equals(this.device) ? Math.max(1, availableGpus)
+                : "auto".equals(this.device) ? Math.max(0, availableGpus)
+                : 0;
+        int cpuWorkers = configuredMaxWorkers > 0
+                ? configuredMaxWorkers
+                : Math.max(1, this.availableCores / this.threadsPerWorker);
+        this.maxWorkers = gpuDevices > 0
+                ? Math.min(cpuWorkers, gpuDevices * Math.max(1, gpuWorkersPerDevice))
+                : cpuWorkers;
+        this.confidenceMode = normalizeConfidenceMode(confidenceMode);
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getCpuProfile() {
+        return cpuProfile;
+    }
+
+    public boolean isCpuOptimized() {
+        return "optimized".equals(cpuProfile);
+    }
+
+    public int getAvailableCores() {
+        return availableCores;
+    }
+
+    public int getThreadsPerWorker() {
+        return threadsPerWorker;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public int getGpuDevices() {
+        return gpuDevices;
+    }
+
+    public String getConfidenceMode() {
+        return confidenceMode;
+    }
+
+    public Map<String, String> workerEnvironment(int workerSlot) {
+        String threads = String.valueOf(threadsPerWorker);
+        String affinity = pinCores && isCpuOptimized() ? coreRange(workerSlot) : "";
+        Map<String, String> environment = new HashMap<>(Map.of(
+                "CVSUM_DEVICE", device,
+                "CVSUM_CPU_PROFILE", cpuProfile,
+                "CVSUM_CPU_QUANTIZE", String.valueOf(cpuQuantize),
+                "CVSUM_CPU_THREADS", threads,
+                "CVSUM_CPU_AFFINITY", affinity,
+                "CVSUM_CONFIDENCE_MODE", confidenceMode
+        ));
+        if (isCpuOptimized() && gpuDevices == 0) {
+            environment.put("OMP_NUM_THREADS", threads);
+            environment.put("MKL_NUM_THREADS", threads);
+        }
+        if (gpuDevices > 1) {
+            environment.put("CUDA_VISIBLE_DEVICES", gpuId(workerSlot % gpuDevices));
+        }
+        return Map.copyOf(environment);
+    }
+
+    private String coreRange(int workerSlot) {
+        int first = (workerSlot * threadsPerWorker) % availableCores;
+        int last = Math.min(first + threadsPerWorker, availableCores) - 1;
+        return first == last ? String.valueOf(first) : first + "-" + last;
+    }
+
+    private static String gpuId(int index) {
+        String inherited = System.getenv("CUDA_VISIBLE_DEVICES");
+        String[] ids = inherited == null || inherited.isBlank() ? new String[0] : inherited.split(",");
+        return index < ids.length ? ids[index].trim() : String.valueOf(index);
+    }
+
+    private static int detectGpuDevices() {
+        String visible = System.getenv("CUDA_VISIBLE_DEVICES");
+        if (visible != null) {
+            return visible.isBlank() ? 0 : visible.split(",").length;
+        }
+        File[] nodes = new File("/dev").listFiles((dir, name) -> name.matches("nvidia\\d+"));
+        return nodes == null ? 0 : nodes.length;
+    }
+
+    private static String normalizeDevice(String value) {
+        String normalized = value == null ? "auto" : value.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "cpu", "cuda" -> normalized;
+            default -> "auto";
+        };
+    }
+
+    private static String normalizeProfile(String value) {
+        String normalized = value == null ? "standard" : value.trim().toLowerCase(Locale.ROOT);
+        return "optimized".equals(normalized) ? "optimized" : "standard";
+    }
+
+    private static String normalizeConfidenceMode(String value) {
+        String normalized = value == null ? "logprob" : value.trim().toLowerCase(Locale.ROOT);
+        return "softmax".equals(normalized) ? "softmax" : "logprob";
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.cvsum.backend.util;
+
+import com.example.cvsum.backend.service.ProgressListener;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+final class InferenceWorker {
+
+    private static final String END_OF_OUTPUT = "\u0000";
+    private static final int MAX_STDERR_LINES = 20;
+
+    private final int slot;
+    private final ObjectMapper objectMapper;
+    private final Process process;
+    private final OutputStream stdin;
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final Deque<String> stderrTail = new ArrayDeque<>();
+    private volatile ProgressListener progressListener = ProgressListener.NO_OP;
+    private volatile boolean loaded;
+    private volatile boolean stopped;
+    private volatile long readyAtNanos;
+    private volatile long lastUsedNanos;
+
+    private InferenceWorker(int slot, ObjectMapper objectMapper, Process process) {
+        this.slot = slot;
+        this.objectMapper = objectMapper;
+        this.process = process;
+        this.stdin = process.getOutputStream();
+    }
+
+    static InferenceWorker start(
+            int slot,
+            ObjectMapper objectMapper,
+            String pythonExecutable,
+            String scriptPath,
+            Map<String, String> environment
+    ) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(pythonExecutable, scriptPath, "--serve");
+        pb.redirectErrorStream(false);
+        pb.environment().putAll(environment);
+        InferenceWorker worker = new InferenceWorker(slot, objectMapper, pb.start());
+        worker.startReader("inference-worker-" + slot + "-out", () -> worker.readStdout(worker.process.getInputStream()));
+        worker.startReader("inference-worker-" + slot + "-err", () -> worker.readStderr(worker.process.getErrorStream()));
+        return worker;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    long readyAtNanos() {
+        return readyAtNanos;
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    boolean isAlive() {
+        return !stopped && process.isAlive();
+    }
+
+    void awaitReady(Duration timeout) throws InterruptedException {
+        if (!ready.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            stop();
+            throw new IllegalStateException("Model was not loaded within " + timeout.toSeconds() + "s.");
+        }
+        if (!loaded) {
+            throw new IllegalStateException("Inference worker exited while loading the model: " + stderrSummary());
+        }
+        readyAtNanos = System.nanoTime();
+        lastUsedNanos = readyAtNanos;
+    }
+
+    JsonNode execute(String inputJson, ProgressListener listener, Duration timeout) {
+        progressListener = listener;
+        try {
+            stdin.write(inputJson.getBytes(StandardCharsets.UTF_8));
+            stdin.write('\n');
+            stdin.flush();
+
+            String line = responses.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (line == null) {
+                stop();
+                throw new ResponseStatusException(
+                        HttpStatus.GATEWAY_TIMEOUT,
+                        "Python inference timed out after " + timeout.toSeconds() + "s."
+                );
+            }
+            if (END_OF_OUTPUT.equals(line)) {
+                throw new ResponseStatusException(
+                        HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Python inference failed: " + stderrSummary()
+                );
+            }
+
+            JsonNode root = objectMapper.readTree(line);
+            if (root.hasNonNull("error")) {
+                throw new ResponseStatusException(
+                        "context_overflow".equals(root.path("errorType").asText())
+                                ? HttpStatus.PAYLOAD_TOO_LARGE
+                                : HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Python inference failed: " + root.path("error").asText()
+                );
+            }
+            return root;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Python inference was interrupted.", e);
+        } catch (IOException e) {
+            stop();
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to run Python inference.", e);
+        } finally {
+            progressListener = ProgressListener.NO_OP;
+            lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        try {
+            stdin.close();
+        } catch (IOException ignored) {
+            // The worker is being discarded; a broken pipe means it already exited.
+        }
+        try {
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    String stderrSummary() {
+        synchronized (stderrTail) {
+            return stderrTail.isEmpty() ? "worker exited with code " + exitCode() : String.join("\n", stderrTail);
+        }
+    }
+
+    private String exitCode() {
+        return process.isAlive() ? "none" : String.valueOf(process.exitValue());
+    }
+
+    private void startReader(String name, Runnable reader) {
+        Thread thread = new Thread(reader, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void readStdout(InputStream stdout) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stdout, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.hasText(line)) {
+                    responses.add(line);
+                }
+            }
+        } catch (IOException ignored) {
+            // Treated as end of output below.
+        }
+        responses.add(END_OF_OUTPUT);
+    }
+
+    private void readStderr(InputStream stderr) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("READY:")) {
+                    loaded = true;
+                    ready.countDown();
+                } else if (line.startsWith("PROGRESS:")) {
+                    handleProgressLine(line);
+                } else if (StringUtils.hasText(line)) {
+                    synchronized (stderrTail) {
+                        stderrTail.addLast(line);
+                        if (stderrTail.size() > MAX_STDERR_LINES) {
+                            stderrTail.removeFirst();
+                        }
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // Ignore stderr read errors; a dead worker is detected through its output stream.
+        }
+        ready.countDown();
+    }
+
+    private void handleProgressLine(String line) {
+        String payload = line.substring("PROGRESS:".length()).trim();
+        try {
+            JsonNode progress = objectMapper.readTree(payload);
+            int percentage = Math.max(0, Math.min(100, progress.path("progress").asInt(0)));
+            progressListener.onProgress(percentage, progress.path("message").asText("Running inference."));
+        } catch (IOException ignored) {
+            // Ignore malformed progress message and continue inference.
+        }
+    }
+}
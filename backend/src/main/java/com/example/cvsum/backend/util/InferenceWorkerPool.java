@@ -0,0 +1,384 @@
+package com.example.cvsum.backend.util;
+
+import com.example.cvsum.backend.service.ProgressListener;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class InferenceWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(InferenceWorkerPool.class);
+
+    private final ObjectMapper objectMapper;
+    private final InferenceRuntimeSettings runtimeSettings;
+    private final MeterRegistry meterRegistry;
+    private final String pythonExecutable;
+    private final String scriptPath;
+    private final Duration requestTimeout;
+    private final Duration startupTimeout;
+    private final int prewarmWorkers;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long idleNanos;
+    private final Counter warmRequests;
+    private final Counter coldRequests;
+    private final Counter startFailureCounter;
+    private final Object lock = new Object();
+    private final List<InferenceWorker> workers = new ArrayList<>();
+    private final Deque<InferenceWorker> idleWorkers = new ArrayDeque<>();
+    private final Set<Integer> usedSlots = new HashSet<>();
+    private final ExecutorService launcher;
+    private final ScheduledExecutorService scheduler;
+    private int startingWorkers;
+    private int waitingRequests;
+    private long startFailures;
+    private String lastStartupError;
+    private boolean warmedUp;
+    private boolean running = true;
+
+    public InferenceWorkerPool(
+            ObjectMapper objectMapper,
+            InferenceRuntimeSettings runtimeSettings,
+            MeterRegistry meterRegistry,
+            @Value("${cvsum.python.executable:python}") String pythonExecutable,
+            @Value("${cvsum.python.script-path:python/gpu_infer.py}") String scriptPath,
+            @Value("${cvsum.python.timeout-seconds:60}") int timeoutSeconds,
+            @Value("${cvsum.python.pool.prewarm-workers:0}") int prewarmWorkers,
+            @Value("${cvsum.python.pool.min-workers:0}") int minWorkers,
+            @Value("${cvsum.python.pool.idle-seconds:300}") int idleSeconds,
+            @Value("${cvsum.python.pool.startup-timeout-seconds:300}") int startupTimeoutSeconds
+    ) {
+        this.objectMapper = objectMapper;
+        this.runtimeSettings = runtimeSettings;
+        this.meterRegistry = meterRegistry;
+        this.pythonExecutable = pythonExecutable;
+        this.scriptPath = scriptPath;
+        this.requestTimeout = Duration.ofSeconds(timeoutSeconds);
+        this.startupTimeout = Duration.ofSeconds(Math.max(1, startupTimeoutSeconds));
+        this.maxWorkers = runtimeSettings.getMaxWorkers();
+        this.prewarmWorkers = Math.max(0, Math.min(prewarmWorkers, maxWorkers));
+        this.minWorkers = Math.max(0, Math.min(minWorkers, maxWorkers));
+        this.idleNanos = Duration.ofSeconds(Math.max(1, idleSeconds)).toNanos();
+
+        this.warmRequests = Counter.builder("cvsum.inference.pool.requests").tag("start", "warm").register(meterRegistry);
+        this.coldRequests = Counter.builder("cvsum.inference.pool.requests").tag("start", "cold").register(meterRegistry);
+        this.startFailureCounter = Counter.builder("cvsum.inference.pool.start.failures").register(meterRegistry);
+        Gauge.builder("cvsum.inference.pool.workers", this, InferenceWorkerPool::workerCount).register(meterRegistry);
+        Gauge.builder("cvsum.inference.pool.idle", this, InferenceWorkerPool::idleWorkerCount).register(meterRegistry);
+        Gauge.builder("cvsum.inference.pool.starting", this, InferenceWorkerPool::startingWorkerCount).register(meterRegistry);
+        Gauge.builder("cvsum.inference.pool.waiting", this, InferenceWorkerPool::waitingRequestCount).register(meterRegistry);
+
+        this.launcher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "inference-worker-launcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inference-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long maintainSeconds = Math.max(1, Math.min(30, idleSeconds / 4));
+        scheduler.scheduleWithFixedDelay(this::maintain, maintainSeconds, maintainSeconds, TimeUnit.SECONDS);
+        synchronized (lock) {
+            for (int i = 0; i < Math.max(this.prewarmWorkers, this.minWorkers); i++) {
+                startWorker("prewarm");
+            }
+        }
+    }
+
+    public boolean isReady() {
+        synchronized (lock) {
+            if (liveWorkers() > 0) {
+                return true;
+            }
+            if (warmFloor() > 0) {
+                return false;
+            }
+            if (warmedUp && lastStartupError == null) {
+                return true;
+            }
+            if (running && workers.isEmpty() && startingWorkers == 0) {
+                startWorker("warmup");
+            }
+            return false;
+        }
+    }
+
+    public int liveWorkerCount() {
+        synchronized (lock) {
+            return liveWorkers();
+        }
+    }
+
+    private int liveWorkers() {
+        int live = 0;
+        for (InferenceWorker worker : workers) {
+            if (worker.isAlive()) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    public int workerCount() {
+        synchronized (lock) {
+            return workers.size();
+        }
+    }
+
+    public int idleWorkerCount() {
+        synchronized (lock) {
+            return idleWorkers.size();
+        }
+    }
+
+    public int busyWorkerCount() {
+        synchronized (lock) {
+            return workers.size() - idleWorkers.size();
+        }
+    }
+
+    public int startingWorkerCount() {
+        synchronized (lock) {
+            return startingWorkers;
+        }
+    }
+
+    public int waitingRequestCount() {
+        synchronized (lock) {
+            return waitingRequests;
+        }
+    }
+
+    public JsonNode execute(String inputJson, ProgressListener progressListener) {
+        InferenceWorker worker = acquire(progressListener);
+        try {
+            return worker.execute(inputJson, progressListener, requestTimeout);
+        } finally {
+            release(worker);
+        }
+    }
+
+    private InferenceWorker acquire(ProgressListener progressListener) {
+        long arrivedAt = System.nanoTime();
+        InferenceWorker worker;
+        long failuresAtArrival;
+        boolean warm;
+        synchronized (lock) {
+            failuresAtArrival = startFailures;
+            warm = !workers.isEmpty();
+            worker = pollIdleWorker();
+            if (worker == null) {
+                waitingRequests++;
+                scaleForDemand();
+            }
+        }
+        if (worker != null) {
+            warmRequests.increment();
+            return worker;
+        }
+
+        progressListener.onProgress(0, warm ? "Waiting for a free inference worker." : "Starting an inference worker.");
+        try {
+            synchronized (lock) {
+                while ((worker = pollIdleWorker()) == null) {
+                    if (!running) {
+                        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Inference workers are shutting down.");
+                    }
+                    if (startFailures != failuresAtArrival && workers.isEmpty() && startingWorkers == 0) {
+                        throw new ResponseStatusException(
+                                HttpStatus.INTERNAL_SERVER_ERROR,
+                                "Inference worker failed to start: " + lastStartupError
+                        );
+                    }
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(arrivedAt + requestTimeout.toNanos() - System.nanoTime());
+                    if (remainingMillis <= 0) {
+                        throw new ResponseStatusException(
+                                HttpStatus.SERVICE_UNAVAILABLE,
+                                "No inference worker became available within " + requestTimeout.toSeconds() + "s."
+                        );
+                    }
+                    scaleForDemand();
+                    lock.wait(remainingMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Python inference was interrupted.", e);
+        } finally {
+            synchronized (lock) {
+                waitingRequests--;
+            }
+        }
+
+        (worker.readyAtNanos() > arrivedAt ? coldRequests : warmRequests).increment();
+        return worker;
+    }
+
+    private void release(InferenceWorker worker) {
+        synchronized (lock) {
+            if (running && worker.isAlive()) {
+                idleWorkers.addFirst(worker);
+            } else {
+                retire(worker, "failure");
+                scaleForDemand();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private InferenceWorker pollIdleWorker() {
+        InferenceWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            retire(worker, "failure");
+        }
+        return null;
+    }
+
+    private void scaleForDemand() {
+        int capacity = idleWorkers.size() + startingWorkers;
+        while (running && waitingRequests > capacity && workers.size() + startingWorkers < maxWorkers) {
+            startWorker("demand");
+            capacity++;
+        }
+    }
+
+    private void startWorker(String reason) {
+        int slot = 0;
+        while (usedSlots.contains(slot)) {
+            slot++;
+        }
+        usedSlots.add(slot);
+        startingWorkers++;
+        scaleCounter("up", reason).increment();
+        int workerSlot = slot;
+        launcher.execute(() -> launch(workerSlot));
+    }
+
+    private void launch(int slot) {
+        InferenceWorker worker = null;
+        try {
+            worker = InferenceWorker.start(
+                    slot,
+                    objectMapper,
+                    pythonExecutable,
+                    PythonBridgeClient.resolveScriptPath(scriptPath),
+                    runtimeSettings.workerEnvironment(slot)
+            );
+            worker.awaitReady(startupTimeout);
+            synchronized (lock) {
+                startingWorkers--;
+                if (running) {
+                    workers.add(worker);
+                    idleWorkers.addFirst(worker);
+                    lastStartupError = null;
+                    warmedUp = true;
+                    lock.notifyAll();
+                    return;
+                }
+                usedSlots.remove(slot);
+            }
+            worker.stop();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker != null) {
+                worker.stop();
+            }
+            startFailureCounter.increment();
+            log.warn("Inference worker {} failed to start", slot, e);
+            synchronized (lock) {
+                startingWorkers--;
+                usedSlots.remove(slot);
+                startFailures++;
+                lastStartupError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void retire(InferenceWorker worker, String reason) {
+        if (workers.remove(worker)) {
+            usedSlots.remove(worker.slot());
+            idleWorkers.remove(worker);
+            scaleCounter("down", reason).increment();
+            launcher.execute(worker::stop);
+        }
+    }
+
+    void maintain() {
+        synchronized (lock) {
+            long now = System.nanoTime();
+            InferenceWorker oldest;
+            while (workers.size() > warmFloor()
+                    && (oldest = idleWorkers.peekLast()) != null
+                    && now - oldest.lastUsedNanos() > idleNanos) {
+                retire(oldest, "idle");
+            }
+            for (InferenceWorker worker : List.copyOf(idleWorkers)) {
+                if (!worker.isAlive()) {
+                    retire(worker, "failure");
+                }
+            }
+            while (running && workers.size() + startingWorkers < warmFloor()) {
+                startWorker("minimum");
+            }
+        }
+    }
+
+    private int warmFloor() {
+        return prewarmWorkers > 0 ? Math.max(1, minWorkers) : minWorkers;
+    }
+
+    private Counter scaleCounter(String direction, String reason) {
+        return Counter.builder("cvsum.inference.pool.scale")
+                .tag("direction", direction)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<InferenceWorker> stopping;
+        synchronized (lock) {
+            running = false;
+            stopping = List.copyOf(workers);
+            workers.clear();
+            idleWorkers.clear();
+            lock.notifyAll();
+        }
+        scheduler.shutdownNow();
+        for (InferenceWorker worker : stopping) {
+            worker.stop();
+        }
+        launcher.shutdownNow();
+    }
+}
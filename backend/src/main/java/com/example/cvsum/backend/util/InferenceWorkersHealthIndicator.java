@@ -0,0 +1,24 @@
+package com.example.cvsum.backend.util;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class InferenceWorkersHealthIndicator implements HealthIndicator {
+
+    private final InferenceWorkerPool workerPool;
+
+    public InferenceWorkersHealthIndicator(InferenceWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = workerPool.isReady() ? Health.up() : Health.outOfService();
+        return builder.withDetail("workers", workerPool.workerCount())
+                .withDetail("idle", workerPool.idleWorkerCount())
+                .withDetail("starting", workerPool.startingWorkerCount())
+                .build();
+    }
+}
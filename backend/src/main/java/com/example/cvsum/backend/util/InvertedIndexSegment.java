@@ -0,0 +1,305 @@
+package com.example.cvsum.backend.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class InvertedIndexSegment {
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[a-zA-Z0-9]+");
+    private static final int MAGIC = 0x4356_5331;
+    private static final int HEADER_BYTES = 32;
+    private static final int DOC_ENTRY_BYTES = 8;
+    private static final int TERM_ENTRY_BYTES = 16;
+    private static final int MAX_SNIPPETS_PER_POSTING = 16;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final long totalTokens;
+    private final int docTableOffset;
+    private final int termTableOffset;
+
+    private InvertedIndexSegment(Path file, ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an index segment: " + file);
+        }
+        this.file = file;
+        this.buffer = buffer;
+        this.docCount = buffer.getInt(4);
+        this.termCount = buffer.getInt(8);
+        this.totalTokens = buffer.getLong(12);
+        this.docTableOffset = buffer.getInt(20);
+        this.termTableOffset = buffer.getInt(24);
+    }
+
+    public static InvertedIndexSegment inMemory(List<SearchDocument> documents) {
+        return new InvertedIndexSegment(null, ByteBuffer.wrap(encode(documents)));
+    }
+
+    public static InvertedIndexSegment write(Path file, List<SearchDocument> documents) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, encode(documents));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    public static InvertedIndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new InvertedIndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public long totalTokens() {
+        return totalTokens;
+    }
+
+    public List<Posting> postings(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = termTableOffset + mid * TERM_ENTRY_BYTES;
+            int comparison = readString(buffer.getInt(entry), buffer.getInt(entry + 4)).compareTo(term);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return readPostings(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+            }
+        }
+        return List.of();
+    }
+
+    public int tokenCount(int ordinal) {
+        return buffer.getInt(docTableOffset + ordinal * DOC_ENTRY_BYTES + 4);
+    }
+
+    public String key(int ordinal) {
+        int position = buffer.getInt(docTableOffset + ordinal * DOC_ENTRY_BYTES);
+        return readString(position + 4, buffer.getInt(position));
+    }
+
+    public long indexedAt(int ordinal) {
+        int position = buffer.getInt(docTableOffset + ordinal * DOC_ENTRY_BYTES);
+        position += 4 + buffer.getInt(position);
+        position += 4 + buffer.getInt(position);
+        return buffer.getLong(position);
+    }
+
+    public SearchDocument document(int ordinal) {
+        int position = buffer.getInt(docTableOffset + ordinal * DOC_ENTRY_BYTES);
+        int keyLength = buffer.getInt(position);
+        String key = readString(position + 4, keyLength);
+        position += 4 + keyLength;
+        int nameLength = buffer.getInt(position);
+        String name = readString(position + 4, nameLength);
+        position += 4 + nameLength;
+        long indexedAt = buffer.getLong(position);
+        int tokenCount = buffer.getInt(position + 8);
+        int snippetCount = buffer.getInt(position + 12);
+        position += 16;
+
+        List<String> snippets = new ArrayList<>(snippetCount);
+        for (int i = 0; i < snippetCount; i++) {
+            int length = buffer.getInt(position);
+            snippets.add(readString(position + 4, length));
+            position += 4 + length;
+        }
+        return new SearchDocument(key, name, indexedAt, tokenCount, snippets);
+    }
+
+    public List<SearchDocument> documents() {
+        List<SearchDocument> documents = new ArrayList<>(docCount);
+        for (int ordinal = 0; ordinal < docCount; ordinal++) {
+            documents.add(document(ordinal));
+        }
+        return documents;
+    }
+
+    private List<Posting> readPostings(int position, int docFreq) {
+        List<Posting> postings = new ArrayList<>(docFreq);
+        for (int i = 0; i < docFreq; i++) {
+            int doc = buffer.getInt(position);
+            int termFreq = buffer.getInt(position + 4);
+            int snippetCount = buffer.getInt(position + 8);
+            position += 12;
+            int[] snippets = new int[snippetCount];
+            for (int s = 0; s < snippetCount; s++) {
+                snippets[s] = buffer.getInt(position);
+                position += 4;
+            }
+            postings.add(new Posting(doc, termFreq, snippets));
+        }
+        return postings;
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(List<SearchDocument> documents) {
+        TreeMap<String, Map<Integer, PostingBuilder>> terms = new TreeMap<>();
+        long totalTokens = 0;
+        for (int doc = 0; doc < documents.size(); doc++) {
+            List<String> snippets = documents.get(doc).snippets();
+            for (int snippet = 0; snippet < snippets.size(); snippet++) {
+                for (String token : tokenize(snippets.get(snippet))) {
+                    terms.computeIfAbsent(token, key -> new LinkedHashMap<>())
+                            .computeIfAbsent(doc, key -> new PostingBuilder())
+                            .add(snippet);
+                }
+            }
+            totalTokens += documents.get(doc).tokenCount();
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(new byte[HEADER_BYTES]);
+
+            int[] docOffsets = new int[documents.size()];
+            for (int doc = 0; doc < documents.size(); doc++) {
+                docOffsets[doc] = out.size();
+                SearchDocument document = documents.get(doc);
+                writeString(out, document.key());
+                writeString(out, document.name() == null ? "" : document.name());
+                out.writeLong(document.indexedAt());
+                out.writeInt(document.tokenCount());
+                out.writeInt(document.snippets().size());
+                for (String snippet : document.snippets()) {
+                    writeString(out, snippet);
+                }
+            }
+
+            int[] postingOffsets = new int[terms.size()];
+            int[] docFreqs = new int[terms.size()];
+            int termIndex = 0;
+            for (Map<Integer, PostingBuilder> postings : terms.values()) {
+                postingOffsets[termIndex] = out.size();
+                docFreqs[termIndex] = postings.size();
+                for (Map.Entry<Integer, PostingBuilder> posting : postings.entrySet()) {
+                    PostingBuilder builder = posting.getValue();
+                    out.writeInt(posting.getKey());
+                    out.writeInt(builder.termFreq);
+                    out.writeInt(builder.snippetCount);
+                    for (int s = 0; s < builder.snippetCount; s++) {
+                        out.writeInt(builder.snippets[s]);
+                    }
+                }
+                termIndex++;
+            }
+
+            int[] termBlobOffsets = new int[terms.size()];
+            int[] termBlobLengths = new int[terms.size()];
+            termIndex = 0;
+            for (String term : terms.keySet()) {
+                byte[] encoded = term.getBytes(StandardCharsets.UTF_8);
+                termBlobOffsets[termIndex] = out.size();
+                termBlobLengths[termIndex] = encoded.length;
+                out.write(encoded);
+                termIndex++;
+            }
+
+            int docTableOffset = out.size();
+            for (int doc = 0; doc < documents.size(); doc++) {
+                out.writeInt(docOffsets[doc]);
+                out.writeInt(documents.get(doc).tokenCount());
+            }
+
+            int termTableOffset = out.size();
+            for (int i = 0; i < terms.size(); i++) {
+                out.writeInt(termBlobOffsets[i]);
+                out.writeInt(termBlobLengths[i]);
+                out.writeInt(postingOffsets[i]);
+                out.writeInt(docFreqs[i]);
+            }
+            out.flush();
+
+            ByteBuffer encoded = ByteBuffer.wrap(bytes.toByteArray());
+            encoded.putInt(0, MAGIC);
+            encoded.putInt(4, documents.size());
+            encoded.putInt(8, terms.size());
+            encoded.putLong(12, totalTokens);
+            encoded.putInt(20, docTableOffset);
+            encoded.putInt(24, termTableOffset);
+            return encoded.array();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode index segment.", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    public record SearchDocument(String key, String name, long indexedAt, int tokenCount, List<String> snippets) {
+
+        public static SearchDocument of(String key, String name, long indexedAt, List<String> snippets) {
+            int tokenCount = 0;
+            for (String snippet : snippets) {
+                tokenCount += tokenize(snippet).size();
+            }
+            return new SearchDocument(key, name, indexedAt, tokenCount, List.copyOf(snippets));
+        }
+    }
+
+    public record Posting(int doc, int termFreq, int[] snippets) {
+    }
+
+    private static final class PostingBuilder {
+        private int termFreq;
+        private int lastSnippet = -1;
+        private int snippetCount;
+        private final int[] snippets = new int[MAX_SNIPPETS_PER_POSTING];
+
+        private void add(int snippet) {
+            termFreq++;
+            if (snippet != lastSnippet && snippetCount < snippets.length) {
+                snippets[snippetCount++] = snippet;
+            }
+            lastSnippet = snippet;
+        }
+    }
+}
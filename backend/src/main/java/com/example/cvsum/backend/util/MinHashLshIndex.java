@@ -0,0 +1,311 @@
+package com.example.cvsum.backend.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+public class MinHashLshIndex {
+
+    private static final int FILE_MAGIC = 0x4D48_4C31;
+
+    private final int shingleSize;
+    private final int bands;
+    private final int rowsPerBand;
+    private final int numHashes;
+    private final long[] seeds;
+    private final Path storageFile;
+
+    private final List<String> keys = new ArrayList<>();
+    private int[] signatures = new int[0];
+    private final List<Map<Long, IntBucket>> bandTables = new ArrayList<>();
+
+    public MinHashLshIndex(int shingleSize, int bands, int rowsPerBand, Path storageFile) {
+        this.shingleSize = Math.max(1, shingleSize);
+        this.bands = Math.max(1, bands);
+        this.rowsPerBand = Math.max(1, rowsPerBand);
+        this.numHashes = this.bands * this.rowsPerBand;
+        this.storageFile = storageFile;
+        this.seeds = new long[numHashes];
+        long seed = 0x9E37_79B9_7F4A_7C15L;
+        for (int i = 0; i < numHashes; i++) {
+            seed = mix(seed + 0x9E37_79B9_7F4A_7C15L);
+            seeds[i] = seed;
+        }
+        for (int band = 0; band < this.bands; band++) {
+            bandTables.add(new HashMap<>());
+        }
+        if (storageFile != null) {
+            load();
+        }
+    }
+
+    public int[] signature(String text) {
+        int[] signature = new int[numHashes];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        long[] window = new long[shingleSize];
+        int tokenCount = 0;
+        int length = text == null ? 0 : text.length();
+        int position = 0;
+        while (position < length) {
+            while (position < length && !Character.isLetterOrDigit(text.charAt(position))) {
+                position++;
+            }
+            if (position >= length) {
+                break;
+            }
+            long tokenHash = 0xCBF2_9CE4_8422_2325L;
+            while (position < length && Character.isLetterOrDigit(text.charAt(position))) {
+                tokenHash ^= Character.toLowerCase(text.charAt(position));
+                tokenHash *= 0x0000_0100_0000_01B3L;
+                position++;
+            }
+            window[tokenCount % shingleSize] = tokenHash;
+            tokenCount++;
+            if (tokenCount >= shingleSize) {
+                updateSignature(signature, shingleHash(window, tokenCount));
+            }
+        }
+        if (tokenCount > 0 && tokenCount < shingleSize) {
+            updateSignature(signature, shingleHash(window, tokenCount));
+        }
+        return signature;
+    }
+
+    public synchronized List<Match> findMatches(int[] signature, double minSimilarity) {
+        List<Match> matches = new ArrayList<>();
+        BitSet seen = new BitSet(keys.size());
+        for (int band = 0; band < bands; band++) {
+            IntBucket bucket = bandTables.get(band).get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = 0; i < bucket.size; i++) {
+                int ordinal = bucket.items[i];
+                if (seen.get(ordinal)) {
+                    continue;
+                }
+                seen.set(ordinal);
+                double similarity = estimateSimilarity(signature, ordinal);
+                if (similarity >= minSimilarity) {
+                    matches.add(new Match(keys.get(ordinal), similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed());
+        return matches;
+    }
+
+    public synchronized void add(String key, int[] signature) {
+        if (signature.length != numHashes) {
+            throw new IllegalArgumentException("Signature length must be " + numHashes + ".");
+        }
+        insert(key, signature);
+        if (storageFile != null) {
+            append(key, signature);
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public synchronized int retain(Predicate<String> keep) {
+        Map<String, Integer> latest = new LinkedHashMap<>();
+        for (int ordinal = 0; ordinal < keys.size(); ordinal++) {
+            latest.remove(keys.get(ordinal));
+            latest.put(keys.get(ordinal), ordinal);
+        }
+        int[] previous = signatures;
+        int before = keys.size();
+        keys.clear();
+        signatures = new int[0];
+        bandTables.forEach(Map::clear);
+        for (Map.Entry<String, Integer> entry : latest.entrySet()) {
+            if (keep.test(entry.getKey())) {
+                insert(entry.getKey(), Arrays.copyOfRange(previous, entry.getValue() * numHashes, (entry.getValue() + 1) * numHashes));
+            }
+        }
+        if (storageFile != null && keys.size() != before) {
+            rewrite();
+        }
+        return before - keys.size();
+    }
+
+    private void insert(String key, int[] signature) {
+        int ordinal = keys.size();
+        keys.add(key);
+        if (signatures.length < (ordinal + 1) * numHashes) {
+            signatures = Arrays.copyOf(signatures, Math.max(numHashes * 16, signatures.length * 2));
+        }
+        System.arraycopy(signature, 0, signatures, ordinal * numHashes, numHashes);
+        for (int band = 0; band < bands; band++) {
+            bandTables.get(band).computeIfAbsent(bandKey(signature, band), k -> new IntBucket()).add(ordinal);
+        }
+    }
+
+    private double estimateSimilarity(int[] signature, int ordinal) {
+        int offset = ordinal * numHashes;
+        int equal = 0;
+        for (int i = 0; i < numHashes; i++) {
+            if (signatures[offset + i] == signature[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) numHashes;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        int start = band * rowsPerBand;
+        for (int row = start; row < start + rowsPerBand; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    private void updateSignature(int[] signature, long shingleHash) {
+        for (int i = 0; i < numHashes; i++) {
+            int value = (int) (mix(shingleHash ^ seeds[i]) >>> 33);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    private long shingleHash(long[] window, int tokenCount) {
+        int size = Math.min(tokenCount, shingleSize);
+        long hash = 0;
+        for (int i = tokenCount - size; i < tokenCount; i++) {
+            hash = mix(hash * 31 + window[i % shingleSize]);
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51_AFD7_ED55_8CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CE_B9FE_1A85_EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private void load() {
+        if (!Files.exists(storageFile)) {
+            return;
+        }
+        LoadResult result;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(storageFile)))) {
+            result = readRecords(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load near-duplicate index from " + storageFile, e);
+        }
+        if (result != LoadResult.COMPLETE) {
+            rewrite();
+        }
+    }
+
+    private LoadResult readRecords(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != numHashes) {
+                return LoadResult.INCOMPATIBLE;
+            }
+            while (true) {
+                String key;
+                try {
+                    key = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                int[] signature = new int[numHashes];
+                for (int i = 0; i < numHashes; i++) {
+                    signature[i] = in.readInt();
+                }
+                insert(key, signature);
+            }
+        } catch (EOFException e) {
+            return LoadResult.TRUNCATED;
+        }
+        return LoadResult.COMPLETE;
+    }
+
+    private void rewrite() {
+        Path temp = storageFile.resolveSibling(storageFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(numHashes);
+            for (int ordinal = 0; ordinal < keys.size(); ordinal++) {
+                out.writeUTF(keys.get(ordinal));
+                for (int i = 0; i < numHashes; i++) {
+                    out.writeInt(signatures[ordinal * numHashes + i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite near-duplicate index " + storageFile, e);
+        }
+        try {
+            Files.move(temp, storageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite near-duplicate index " + storageFile, e);
+        }
+    }
+
+    private void append(String key, int[] signature) {
+        try {
+            Files.createDirectories(storageFile.toAbsolutePath().getParent());
+            boolean fresh = !Files.exists(storageFile) || Files.size(storageFile) == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    storageFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                if (fresh) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(numHashes);
+                }
+                out.writeUTF(key);
+                for (int value : signature) {
+                    out.writeInt(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist near-duplicate index to " + storageFile, e);
+        }
+    }
+
+    public record Match(String key, double similarity) {
+    }
+
+    private enum LoadResult {
+        COMPLETE,
+        TRUNCATED,
+        INCOMPATIBLE
+    }
+
+    private static final class IntBucket {
+        private int[] items = new int[2];
+        private int size;
+
+        private void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+    }
+}
@@ -1,167 +1,353 @@
 package com.example.cvsum.backend.util;
 
+import com.example.cvsum.backend.model.CvDocument;
 import com.example.cvsum.backend.model.SummarizeResponse;
 import com.example.cvsum.backend.service.ProgressListener;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 @Component
 public class PythonBridgeClient {
 
+    static final int PROMPT_RESERVE_TOKENS = 256;
+    static final String NOT_FOUND_ANSWER = "Not found in the CV.";
+
     private final ObjectMapper objectMapper;
-    private final String pythonExecutable;
-    private final String scriptPath;
-    private final int timeoutSeconds;
+    private final MeterRegistry meterRegistry;
+    private final InferenceWorkerPool workerPool;
+    private final boolean longDocumentEnabled;
+    private final int chunkChars;
+    private final ExecutorService chunkExecutor;
+    private final DistributionSummary chunksPerDocument;
+    private final Counter chunkSplits;
 
     public PythonBridgeClient(
             ObjectMapper objectMapper,
-            @Value("${cvsum.python.executable:python}") String pythonExecutable,
-            @Value("${cvsum.python.script-path:python/gpu_infer.py}") String scriptPath,
-            @Value("${cvsum.python.timeout-seconds:60}") int timeoutSeconds
+            InferenceRuntimeSettings runtimeSettings,
+            MeterRegistry meterRegistry,
+            InferenceWorkerPool workerPool,
+            @Value("${cvsum.python.long-document.enabled:true}") boolean longDocumentEnabled,
+            @Value("${cvsum.python.long-document.chunk-chars:0}") int chunkChars,
+            @Value("${cvsum.python.long-document.max-input-tokens:${HF_MAX_INPUT_TOKENS:2048}}") int maxInputTokens,
+            @Value("${cvsum.python.long-document.chars-per-token:3.0}") double charsPerToken
     ) {
         this.objectMapper = objectMapper;
-        this.pythonExecutable = pythonExecutable;
-        this.scriptPath = scriptPath;
-        this.timeoutSeconds = timeoutSeconds;
+        this.meterRegistry = meterRegistry;
+        this.workerPool = workerPool;
+        this.longDocumentEnabled = longDocumentEnabled;
+        this.chunkChars = chunkChars(chunkChars, maxInputTokens, charsPerToken);
+        this.chunkExecutor = Executors.newFixedThreadPool(runtimeSettings.getMaxWorkers(), runnable -> {
+            Thread thread = new Thread(runnable, "inference-chunk");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunksPerDocument = DistributionSummary.builder("cvsum.inference.document.chunks").register(meterRegistry);
+        this.chunkSplits = Counter.builder("cvsum.inference.document.chunk.splits").register(meterRegistry);
+
+        Gauge.builder("cvsum.inference.workers.max", runtimeSettings, InferenceRuntimeSettings::getMaxWorkers)
+                .register(meterRegistry);
+        Gauge.builder("cvsum.inference.workers.active", workerPool, InferenceWorkerPool::busyWorkerCount)
+                .register(meterRegistry);
+        Gauge.builder("cvsum.inference.cpu.threads-per-worker", runtimeSettings,
+                        InferenceRuntimeSettings::getThreadsPerWorker)
+                .register(meterRegistry);
     }
 
-    public SummarizeResponse runInference(String cvText, List<String> questions) {
-        return runInference(cvText, questions, ProgressListener.NO_OP);
+    public SummarizeResponse runInference(CvDocument document, List<String> questions) {
+        return runInference(document, questions, ProgressListener.NO_OP);
     }
 
-    public SummarizeResponse runInference(String cvText, List<String> questions, ProgressListener progressListener) {
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("cv_text", cvText);
-        payload.put("questions", questions);
+    public SummarizeResponse runInference(CvDocument document, List<String> questions, ProgressListener progressListener) {
+        SummarizeResponse response;
+        if (longDocumentEnabled && document.text().length() > chunkChars) {
+            response = runChunked(document, questions, progressListener);
+        } else {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("cv_text", document.text());
+            payload.put("snippet_offsets", document.snippetOffsets());
+            payload.put("questions", questions);
+            response = parseResponse(invoke(payload, progressListener), document);
+        }
+        progressListener.onProgress(100, "Inference response parsed.");
+        return response;
+    }
 
-        String inputJson;
-        try {
-            inputJson = objectMapper.writeValueAsString(payload);
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to prepare inference payload.", e);
+    private SummarizeResponse runChunked(CvDocument document, List<String> questions, ProgressListener progressListener) {
+        List<CvDocument.Chunk> chunks = document.chunks(chunkChars);
+        chunksPerDocument.record(chunks.size());
+        int[] chunkProgress = new int[chunks.size()];
+
+        List<Future<List<MapResult>>> parts = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            CvDocument.Chunk chunk = chunks.get(i);
+            ProgressListener partListener = chunkProgressListener(progressListener, chunkProgress, i);
+            parts.add(chunkExecutor.submit(() -> map(document, chunk, questions, partListener)));
+        }
+        List<MapResult> results = new ArrayList<>();
+        for (List<MapResult> part : awaitAll(parts)) {
+            results.addAll(part);
+        }
+
+        List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
+        for (int q = 0; q < questions.size(); q++) {
+            SummarizeResponse.AnswerItem best = null;
+            for (MapResult result : results) {
+                JsonNode item = result.output().path("answers").path(q);
+                if (item.isMissingNode()
+                        || !item.path("found").asBoolean(true)
+                        || !StringUtils.hasText(item.path("answer").asText(""))) {
+                    continue;
+                }
+                SummarizeResponse.AnswerItem candidate = parseAnswer(item, document, result.chunk());
+                if (best == null || candidate.confidence() > best.confidence()) {
+                    best = candidate;
+                }
+            }
+            answers.add(best != null
+                    ? best
+                    : new SummarizeResponse.AnswerItem(questions.get(q), NOT_FOUND_ANSWER, 0.0, List.of()));
         }
 
-        ProcessBuilder pb = new ProcessBuilder(pythonExecutable, resolveScriptPath());
-        pb.redirectErrorStream(false);
+        List<String> summaries = new ArrayList<>();
+        for (MapResult result : results) {
+            String summary = result.output().path("summary").asText("");
+            if (StringUtils.hasText(summary)) {
+                summaries.add(summary.trim());
+            }
+        }
+        progressListener.onProgress(90, "Combining " + chunks.size() + " CV parts.");
+        String summary = reduce(summaries, (value, message) -> progressListener.onProgress(90 + value * 9 / 100, message));
 
+        return new SummarizeResponse(
+                false,
+                summary,
+                answers,
+                results.get(0).output().path("modelInfo").asText("python-gpu-bridge")
+        );
+    }
+
+    private List<MapResult> map(CvDocument document, CvDocument.Chunk chunk, List<String> questions, ProgressListener progressListener) {
+        List<CvDocument.Chunk> halves = document.split(chunk);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("task", "map");
+        payload.put("cv_text", document.chunkText(chunk));
+        payload.put("snippet_offsets", document.chunkSnippetOffsets(chunk));
+        payload.put("questions", questions);
+        payload.put("truncate", halves.size() < 2);
         try {
-            Process process = pb.start();
-            StringBuilder stderrCapture = new StringBuilder();
-            Thread stderrThread = startStderrReader(process.getErrorStream(), stderrCapture, progressListener);
-
-            process.getOutputStream().write(inputJson.getBytes(StandardCharsets.UTF_8));
-            process.getOutputStream().flush();
-            process.getOutputStream().close();
-
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-                throw new ResponseStatusException(
-                        HttpStatus.GATEWAY_TIMEOUT,
-                        "Python inference timed out after " + Duration.ofSeconds(timeoutSeconds)
-                );
+            return List.of(new MapResult(chunk, invoke(payload, progressListener)));
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode() != HttpStatus.PAYLOAD_TOO_LARGE || halves.size() < 2) {
+                throw e;
             }
+        }
 
-            stderrThread.join(1000);
-            String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-            String stderr = stderrCapture.toString().trim();
+        chunkSplits.increment();
+        List<MapResult> results = new ArrayList<>();
+        for (CvDocument.Chunk half : halves) {
+            results.addAll(map(document, half, questions, progressListener));
+        }
+        return results;
+    }
+
+    private ProgressListener chunkProgressListener(ProgressListener progressListener, int[] chunkProgress, int part) {
+        return (value, message) -> {
+            int overall;
+            synchronized (chunkProgress) {
+                chunkProgress[part] = Math.max(chunkProgress[part], value);
+                int total = 0;
+                for (int progress : chunkProgress) {
+                    total += progress;
+                }
+                overall = total * 90 / (100 * chunkProgress.length);
+            }
+            progressListener.onProgress(overall, "CV part " + (part + 1) + "/" + chunkProgress.length + ": " + message);
+        };
+    }
 
-            if (process.exitValue() != 0) {
-                throw new ResponseStatusException(
-                        HttpStatus.INTERNAL_SERVER_ERROR,
-                        "Python inference failed: " + stderr
-                );
+    private String reduce(List<String> summaries, ProgressListener progressListener) {
+        List<String> level = summaries;
+        while (level.size() > 1) {
+            List<List<String>> batches = new ArrayList<>();
+            List<String> batch = new ArrayList<>();
+            int batchChars = 0;
+            for (String summary : level) {
+                if (batch.size() >= 2 && batchChars + summary.length() > chunkChars) {
+                    batches.add(batch);
+                    batch = new ArrayList<>();
+                    batchChars = 0;
+                }
+                batch.add(summary);
+                batchChars += summary.length();
             }
-            if (stdout.isBlank()) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Python inference returned no output.");
+            batches.add(batch);
+
+            List<String> next = new ArrayList<>();
+            for (List<String> group : batches) {
+                if (group.size() == 1) {
+                    next.add(group.get(0));
+                    continue;
+                }
+                Map<String, Object> reducePayload = new HashMap<>();
+                reducePayload.put("task", "reduce");
+                reducePayload.put("summaries", group);
+                String reduced = invoke(reducePayload, progressListener).path("summary").asText("");
+                next.add(StringUtils.hasText(reduced) ? reduced.trim() : String.join(" ", group));
             }
+            level = next;
+        }
+        return level.isEmpty() ? "" : level.get(0);
+    }
 
-            progressListener.onProgress(100, "Inference response parsed.");
-            return parseResponse(stdout, cvText);
+    private <T> List<T> awaitAll(List<Future<T>> parts) {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> part : parts) {
+                results.add(part.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            parts.forEach(other -> other.cancel(true));
+            if (e.getCause() instanceof ResponseStatusException statusException) {
+                throw statusException;
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to run Python inference.", e.getCause());
         } catch (InterruptedException e) {
+            parts.forEach(other -> other.cancel(true));
             Thread.currentThread().interrupt();
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Python inference was interrupted.", e);
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to run Python inference.", e);
         }
     }
 
-    private SummarizeResponse parseResponse(String stdout, String cvText) {
+    private JsonNode invoke(Map<String, Object> payload, ProgressListener progressListener) {
+        String inputJson;
         try {
-            JsonNode root = objectMapper.readTree(stdout);
-            String summary = root.path("summary").asText("");
-            String modelInfo = root.path("modelInfo").asText("python-gpu-bridge");
-            boolean mockMode = root.path("mockMode").asBoolean(false);
-
-            List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
-            JsonNode answersNode = root.path("answers");
-            if (answersNode.isArray()) {
-                for (JsonNode item : answersNode) {
-                    List<String> citations = new ArrayList<>();
-                    JsonNode citationsNode = item.path("citations");
-                    if (citationsNode.isArray()) {
-                        for (JsonNode citationNode : citationsNode) {
-                            String citation = citationNode.asText("");
-                            if (StringUtils.hasText(citation)) {
-                                citations.add(citation.trim());
-                            }
-                        }
-                    }
-                    if (citations.isEmpty()) {
-                        citations.add(buildFallbackCitation(cvText));
-                    }
-
-                    answers.add(new SummarizeResponse.AnswerItem(
-                            item.path("question").asText(""),
-                            item.path("answer").asText(""),
-                            normalizeConfidence(item.path("confidence").asDouble(0.5)),
-                            citations
-                    ));
-                }
+            inputJson = objectMapper.writeValueAsString(payload);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to prepare inference payload.", e);
+        }
+
+        long startedAt = System.nanoTime();
+        JsonNode root = workerPool.execute(inputJson, progressListener);
+        recordRuntimeMetrics(root.path("runtime"), System.nanoTime() - startedAt);
+        return root;
+    }
+
+    private SummarizeResponse parseResponse(JsonNode root, CvDocument document) {
+        String summary = root.path("summary").asText("");
+        String modelInfo = root.path("modelInfo").asText("python-gpu-bridge");
+        boolean mockMode = root.path("mockMode").asBoolean(false);
+
+        List<SummarizeResponse.AnswerItem> answers = new ArrayList<>();
+        JsonNode answersNode = root.path("answers");
+        if (answersNode.isArray()) {
+            for (JsonNode item : answersNode) {
+                answers.add(parseAnswer(item, document, document.whole()));
             }
+        }
 
-            return new SummarizeResponse(mockMode, summary, answers, modelInfo);
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Invalid response from Python inference.", e);
+        return new SummarizeResponse(mockMode, summary, answers, modelInfo);
+    }
+
+    private SummarizeResponse.AnswerItem parseAnswer(JsonNode item, CvDocument document, CvDocument.Chunk chunk) {
+        List<String> citations = new ArrayList<>();
+        JsonNode snippetIndexes = item.path("citationSnippets");
+        JsonNode citationsNode = item.path("citations");
+        if (snippetIndexes.isArray()) {
+            for (JsonNode indexNode : snippetIndexes) {
+                int index = indexNode.asInt(-1);
+                if (index >= 0 && index < chunk.snippetCount()) {
+                    citations.add(document.materialize(document.citation(chunk.firstSnippet() + index, 220)));
+                }
+            }
+        } else if (citationsNode.isArray()) {
+            for (JsonNode citationNode : citationsNode) {
+                String citation = citationNode.asText("");
+                if (StringUtils.hasText(citation)) {
+                    citations.add(citation.trim());
+                }
+            }
         }
+        if (citations.isEmpty()) {
+            citations.add(buildFallbackCitation(document, chunk));
+        }
+
+        return new SummarizeResponse.AnswerItem(
+                item.path("question").asText(""),
+                item.path("answer").asText(""),
+                normalizeConfidence(item.has("tokenLogprob")
+                        ? confidenceFromLogprobs(
+                                item.path("tokenLogprob").path("mean").asDouble(Math.log(0.5)),
+                                item.path("tokenLogprob").path("min").asDouble(Math.log(0.5)),
+                                item.path("citationOverlap").asDouble(0.0))
+                        : item.path("confidence").asDouble(0.5)),
+                citations
+        );
+    }
+
+    static int chunkChars(int configuredChunkChars, int maxInputTokens, double charsPerToken) {
+        int contextChars = (int) (Math.max(0, maxInputTokens - PROMPT_RESERVE_TOKENS) * Math.max(1.0, charsPerToken));
+        int limit = configuredChunkChars > 0 ? Math.min(configuredChunkChars, contextChars) : contextChars;
+        return Math.max(500, limit);
+    }
+
+    private void recordRuntimeMetrics(JsonNode runtime, long elapsedNanos) {
+        String device = runtime.path("device").asText("unknown");
+        String quantization = runtime.path("quantization").asText("none");
+        Timer.builder("cvsum.inference.duration")
+                .tag("device", device)
+                .tag("quantization", quantization)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
     }
 
     private double normalizeConfidence(double value) {
         return Math.max(0.0, Math.min(1.0, value));
     }
 
-    private String buildFallbackCitation(String cvText) {
-        if (cvText == null || cvText.isBlank()) {
+    static double confidenceFromLogprobs(double meanLogprob, double minLogprob, double citationOverlap) {
+        double tokenConfidence = 0.8 * Math.exp(Math.min(0.0, meanLogprob)) + 0.2 * Math.exp(Math.min(0.0, minLogprob));
+        double blended = 0.45 * Math.max(0.0, Math.min(1.0, citationOverlap)) + 0.55 * tokenConfidence;
+        return Math.max(0.1, Math.min(0.99, 0.2 + 0.78 * blended));
+    }
+
+    private String buildFallbackCitation(CvDocument document, CvDocument.Chunk chunk) {
+        if (document.isBlank()) {
             return "No text could be extracted from the CV.";
         }
+        return document.materialize(document.preview(chunk, 220));
+    }
 
-        String normalized = cvText.replaceAll("\\s+", " ").trim();
-        if (normalized.length() <= 220) {
-            return normalized;
-        }
-        return normalized.substring(0, 220) + "...";
+    @PreDestroy
+    void shutdown() {
+        chunkExecutor.shutdownNow();
     }
 
-    private String resolveScriptPath() {
+    static String resolveScriptPath(String scriptPath) {
         Path configured = Path.of(scriptPath);
         if (configured.isAbsolute() || Files.exists(configured)) {
             return configured.toString();
@@ -175,43 +361,6 @@ public class PythonBridgeClient {
         return configured.toString();
     }
 
-    private Thread startStderrReader(InputStream errorStream, StringBuilder stderrCapture, ProgressListener progressListener) {
-        Thread stderrThread = new Thread(() -> readStderr(errorStream, stderrCapture, progressListener));
-        stderrThread.setDaemon(true);
-        stderrThread.start();
-        return stderrThread;
-    }
-
-    private void readStderr(InputStream errorStream, StringBuilder stderrCapture, ProgressListener progressListener) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (handleProgressLine(line, progressListener)) {
-                    continue;
-                }
-                if (StringUtils.hasText(line)) {
-                    stderrCapture.append(line).append('\n');
-                }
-            }
-        } catch (IOException ignored) {
-            // Ignore stderr read errors; process exit code will determine failure.
-        }
-    }
-
-    private boolean handleProgressLine(String line, ProgressListener progressListener) {
-        if (!line.startsWith("PROGRESS:")) {
-            return false;
-        }
-
-        String payload = line.substring("PROGRESS:".length()).trim();
-        try {
-            JsonNode progress = objectMapper.readTree(payload);
-            int percentage = Math.max(0, Math.min(100, progress.path("progress").asInt(0)));
-            String message = progress.path("message").asText("Running inference.");
-            progressListener.onProgress(percentage, message);
-        } catch (IOException ignored) {
-            // Ignore malformed progress message and continue inference.
-        }
-        return true;
+    private record MapResult(CvDocument.Chunk chunk, JsonNode output) {
     }
 }
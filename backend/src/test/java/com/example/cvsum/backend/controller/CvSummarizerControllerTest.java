@@ -1,27 +1,37 @@
 package com.example.cvsum.backend.controller;
 
+import com.example.cvsum.backend.model.CandidateSearchResponse;
+import com.example.cvsum.backend.model.DocumentCreatedResponse;
 import com.example.cvsum.backend.model.SummarizeResponse;
 import com.example.cvsum.backend.service.CvProcessingJobService;
-import com.example.cvsum.backend.service.MockCvSummarizerService;
-import com.example.cvsum.backend.service.RealGpuCvSummarizerService;
-import com.example.cvsum.backend.util.PdfTextExtractor;
+import com.example.cvsum.backend.service.CvSearchService;
+import com.example.cvsum.backend.service.DocumentSessionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CvSummarizerController.class)
@@ -31,23 +41,19 @@ class CvSummarizerControllerTest {
     private MockMvc mockMvc;
 
     @MockBean
-    private MockCvSummarizerService mockService;
+    private CvProcessingJobService jobService;
 
     @MockBean
-    private RealGpuCvSummarizerService realService;
+    private CvSearchService searchService;
 
     @MockBean
-    private PdfTextExtractor pdfTextExtractor;
-
-    @MockBean
-    private CvProcessingJobService jobService;
+    private DocumentSessionService documentService;
 
     @Test
     void shouldRouteToMockServiceWhenUseMockIsTrue() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "cv.pdf", MediaType.APPLICATION_PDF_VALUE, "fake".getBytes());
-        given(pdfTextExtractor.extractText(file)).willReturn("sample cv");
-        given(mockService.summarize(anyString(), anyList()))
-                .willReturn(new SummarizeResponse(
+        given(jobService.summarize(any(byte[].class), eq("cv.pdf"), anyList(), eq(true), isNull()))
+                .willReturn(CompletableFuture.completedFuture(new SummarizeResponse(
                         true,
                         "mock summary",
                         List.of(new SummarizeResponse.AnswerItem(
@@ -57,12 +63,16 @@ class CvSummarizerControllerTest {
                                 List.of("5 years Java development")
                         )),
                         "mock-v1"
-                ));
+                )));
 
-        mockMvc.perform(multipart("/api/cv/summarize")
+        MvcResult pending = mockMvc.perform(multipart("/api/cv/summarize")
                         .file(file)
                         .param("questions", "What is the strongest skill?")
                         .param("useMock", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.mockMode").value(true))
                 .andExpect(jsonPath("$.summary").value("mock summary"))
@@ -74,9 +84,8 @@ class CvSummarizerControllerTest {
     @Test
     void shouldRouteToRealServiceWhenUseMockIsFalse() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "cv.pdf", MediaType.APPLICATION_PDF_VALUE, "fake".getBytes());
-        given(pdfTextExtractor.extractText(file)).willReturn("sample cv");
-        given(realService.summarize(anyString(), anyList()))
-                .willReturn(new SummarizeResponse(
+        given(jobService.summarize(any(byte[].class), eq("cv.pdf"), anyList(), eq(false), eq(Duration.ofSeconds(30))))
+                .willReturn(CompletableFuture.completedFuture(new SummarizeResponse(
                         false,
                         "real summary",
                         List.of(new SummarizeResponse.AnswerItem(
@@ -86,12 +95,17 @@ class CvSummarizerControllerTest {
                                 List.of("Experience: 2019-2025")
                         )),
                         "gpu-v1"
-                ));
+                )));
 
-        mockMvc.perform(multipart("/api/cv/summarize")
+        MvcResult pending = mockMvc.perform(multipart("/api/cv/summarize")
                         .file(file)
                         .param("questions", "How many years of experience?")
-                        .param("useMock", "false"))
+                        .param("useMock", "false")
+                        .param("deadlineSeconds", "30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.mockMode").value(false))
                 .andExpect(jsonPath("$.summary").value("real summary"))
@@ -100,10 +114,30 @@ class CvSummarizerControllerTest {
                 .andExpect(jsonPath("$.answers[0].citations[0]").value("Experience: 2019-2025"));
     }
 
+    @Test
+    void shouldFailSummarizeWhenDeadlinePasses() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "cv.pdf", MediaType.APPLICATION_PDF_VALUE, "fake".getBytes());
+        given(jobService.summarize(any(byte[].class), eq("cv.pdf"), anyList(), eq(false), eq(Duration.ofSeconds(5))))
+                .willReturn(CompletableFuture.failedFuture(
+                        new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "CV was not processed within 5s.")
+                ));
+
+        MvcResult pending = mockMvc.perform(multipart("/api/cv/summarize")
+                        .file(file)
+                        .param("questions", "How many years of experience?")
+                        .param("useMock", "false")
+                        .param("deadlineSeconds", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isGatewayTimeout());
+    }
+
     @Test
     void shouldCreateAsyncJob() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "cv.pdf", MediaType.APPLICATION_PDF_VALUE, "fake".getBytes());
-        given(jobService.submitJob(any(byte[].class), anyList(), eq(true))).willReturn("job-123");
+        given(jobService.submitJob(any(byte[].class), eq("cv.pdf"), anyList(), eq(true))).willReturn("job-123");
 
         mockMvc.perform(multipart("/api/cv/jobs")
                         .file(file)
@@ -112,4 +146,61 @@ class CvSummarizerControllerTest {
                 .andExpect(status().isAccepted())
                 .andExpect(jsonPath("$.jobId").value("job-123"));
     }
+
+    @Test
+    void shouldSearchProcessedCandidates() throws Exception {
+        given(searchService.search("kubernetes java", 10))
+                .willReturn(new CandidateSearchResponse(
+                        "kubernetes java",
+                        2,
+                        1,
+                        List.of(new CandidateSearchResponse.Hit(
+                                "job-123",
+                                "cv.pdf",
+                                3.2,
+                                List.of("kubernetes", "java"),
+                                List.of("Led migration to Kubernetes with 6 years of Java.")
+                        ))
+                ));
+
+        mockMvc.perform(get("/api/cv/search").param("q", "kubernetes java"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits[0].jobId").value("job-123"))
+                .andExpect(jsonPath("$.hits[0].fileName").value("cv.pdf"))
+                .andExpect(jsonPath("$.hits[0].citations[0]").value("Led migration to Kubernetes with 6 years of Java."));
+    }
+
+    @Test
+    void shouldCreateDocumentAndAnswerFollowUpQuestions() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "cv.pdf", MediaType.APPLICATION_PDF_VALUE, "fake".getBytes());
+        given(documentService.create(any(byte[].class), eq("cv.pdf")))
+                .willReturn(new DocumentCreatedResponse("doc-123", "cv.pdf", 4, 1800));
+        given(documentService.ask("doc-123", List.of("Which cloud platforms?"), true))
+                .willReturn(CompletableFuture.completedFuture(new SummarizeResponse(
+                        true,
+                        "mock summary",
+                        List.of(new SummarizeResponse.AnswerItem(
+                                "Which cloud platforms?",
+                                "AWS",
+                                0.8,
+                                List.of("Deployed services on AWS.")
+                        )),
+                        "mock-v1"
+                )));
+
+        mockMvc.perform(multipart("/api/cv/documents").file(file))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.documentId").value("doc-123"))
+                .andExpect(jsonPath("$.snippetCount").value(4));
+
+        MvcResult pending = mockMvc.perform(post("/api/cv/documents/doc-123/questions")
+                        .param("questions", " Which cloud platforms? ")
+                        .param("useMock", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.answers[0].answer").value("AWS"));
+    }
 }
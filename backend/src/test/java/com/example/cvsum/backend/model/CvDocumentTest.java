@@ -0,0 +1,79 @@
+package com.example.cvsum.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CvDocumentTest {
+
+    @Test
+    void shouldNormalizeTextAndSplitSnippetsOnSentencesAndLines() {
+        CvDocument document = CvDocument.of("  Senior engineer with 8 years of Java.   Led the payments\tplatform team.\r\n"
+                + "Short line\nDeployed services on AWS and Google Cloud  ");
+
+        assertThat(document.text()).isEqualTo("Senior engineer with 8 years of Java. Led the payments platform team. "
+                + "Short line Deployed services on AWS and Google Cloud");
+        assertThat(document.snippets()).containsExactly(
+                "Senior engineer with 8 years of Java.",
+                "Led the payments platform team.",
+                "Deployed services on AWS and Google Cloud"
+        );
+        assertThat(document.snippetOffsets()).hasSize(6);
+        assertThat(document.text().substring(document.snippetStart(1), document.snippetEnd(1)))
+                .isEqualTo("Led the payments platform team.");
+    }
+
+    @Test
+    void shouldFallBackToWholeTextAndTruncateCitations() {
+        CvDocument shortText = CvDocument.of("Java. Kotlin.");
+        assertThat(shortText.snippets()).containsExactly("Java. Kotlin.");
+
+        CvDocument longText = CvDocument.of("x".repeat(300));
+        assertThat(longText.materialize(longText.citation(0, 220))).hasSize(223).endsWith("...");
+        assertThat(longText.materialize(longText.preview(400))).hasSize(300);
+
+        CvDocument empty = CvDocument.of(" \n ");
+        assertThat(empty.isBlank()).isTrue();
+        assertThat(empty.snippetCount()).isZero();
+    }
+
+    @Test
+    void shouldSplitIntoChunksAtSnippetBoundaries() {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            raw.append("Sentence number ").append(i).append(" describes a past role.\n");
+        }
+        CvDocument document = CvDocument.of(raw.toString());
+
+        List<CvDocument.Chunk> chunks = document.chunks(300);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.end() - chunk.start()).isLessThanOrEqualTo(300));
+        assertThat(chunks.stream().mapToInt(CvDocument.Chunk::snippetCount).sum()).isEqualTo(document.snippetCount());
+        CvDocument.Chunk second = chunks.get(1);
+        int[] offsets = document.chunkSnippetOffsets(second);
+        assertThat(document.chunkText(second).substring(offsets[0], offsets[1]))
+                .isEqualTo(document.snippets().get(second.firstSnippet()));
+    }
+
+    @Test
+    void shouldSplitChunkInHalvesAtSnippetBoundaries() {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            raw.append("Sentence number ").append(i).append(" describes a past role.\n");
+        }
+        CvDocument document = CvDocument.of(raw.toString());
+        CvDocument.Chunk chunk = document.chunks(300).get(1);
+
+        List<CvDocument.Chunk> halves = document.split(chunk);
+
+        assertThat(halves).hasSizeGreaterThanOrEqualTo(2);
+        assertThat(halves.get(0).start()).isEqualTo(chunk.start());
+        assertThat(halves.get(halves.size() - 1).end()).isEqualTo(chunk.end());
+        assertThat(halves.get(0).firstSnippet()).isEqualTo(chunk.firstSnippet());
+        assertThat(halves.stream().mapToInt(CvDocument.Chunk::snippetCount).sum()).isEqualTo(chunk.snippetCount());
+        assertThat(document.split(new CvDocument.Chunk(0, 1, 0, 0))).hasSize(1);
+    }
+}
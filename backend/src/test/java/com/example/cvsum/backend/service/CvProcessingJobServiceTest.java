@@ -0,0 +1,111 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.example.cvsum.backend.util.PdfTextExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CvProcessingJobServiceTest {
+
+    private static final String CV_TEXT = "Senior engineer with 8 years of Java and Kubernetes experience.\n"
+            + "Deployed payment services on AWS and Google Cloud.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryJobStore jobStore = new InMemoryJobStore();
+    private final PdfTextExtractor pdfTextExtractor = mock(PdfTextExtractor.class);
+    private final RealGpuCvSummarizerService realService = mock(RealGpuCvSummarizerService.class);
+    private final InferenceSloController sloController = new InferenceSloController(meterRegistry, true, 1, 1, 1, true, 1);
+    private final ProgressStreamRegistry streamRegistry = new ProgressStreamRegistry(meterRegistry, 15, 300, 1800, 8, 5000, 60);
+    private CvProcessingJobService service;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        given(pdfTextExtractor.extractText(any(byte[].class))).willReturn(CV_TEXT);
+        service = new CvProcessingJobService(
+                jobStore,
+                jobStore,
+                pdfTextExtractor,
+                new MockCvSummarizerService(),
+                realService,
+                streamRegistry,
+                new NearDuplicateService(new ObjectMapper(), meterRegistry, false, 0.85, true,
+                        tempDir.toString(), 5, 32, 4, 5000, 30),
+                mock(CvSearchService.class),
+                sloController,
+                meterRegistry,
+                "node-test", 1, 30, 2, 50, 30, 24, 1, 4
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdownExecutor();
+        streamRegistry.shutdown();
+    }
+
+    @Test
+    void shouldServeDegradedAnswerWithoutWaitingForGpuJobsAndUpgradeItLater() throws Exception {
+        CountDownLatch gpuBusy = new CountDownLatch(1);
+        SummarizeResponse full = new SummarizeResponse(false, "full summary",
+                List.of(new SummarizeResponse.AnswerItem("Cloud?", "AWS and Google Cloud", 0.9, List.of())), "tinyllama");
+        given(realService.summarize(any(CvDocument.class), anyList(), any(ProgressListener.class))).willAnswer(invocation -> {
+            gpuBusy.await(10, TimeUnit.SECONDS);
+            return full;
+        });
+
+        String blocking = service.submitJob(new byte[]{1}, "first.pdf", List.of("Cloud?"), false);
+        awaitCondition(() -> jobStore.find(blocking).orElseThrow().status() == JobStatus.RUNNING);
+
+        long now = System.currentTimeMillis();
+        sloController.finished(now - 5_000, now - 5_000);
+        SummarizeResponse degraded = service.summarize(new byte[]{2}, "second.pdf", List.of("Cloud?"), false, Duration.ofSeconds(10))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(degraded.degraded()).isNotNull();
+        assertThat(degraded.degraded().upgradePending()).isTrue();
+        assertThat(degraded.jobId()).isNotNull();
+        assertThat(jobStore.find(blocking).orElseThrow().status()).isEqualTo(JobStatus.RUNNING);
+
+        gpuBusy.countDown();
+        String upgraded = degraded.jobId();
+        awaitCondition(() -> !jobStore.find(upgraded).orElseThrow().isUpgradePending());
+        assertThat(jobStore.find(upgraded).orElseThrow().result().summary()).isEqualTo("full summary");
+        assertThat(jobStore.find(upgraded).orElseThrow().result().degraded()).isNull();
+        awaitCondition(() -> meterRegistry.counter("cvsum.slo.upgrades", "outcome", "completed").count() == 1.0);
+        assertThat(sloController.dispatchedUpgrades()).isEmpty();
+        assertThat(meterRegistry.counter("cvsum.slo.responses", "mode", "degraded").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("cvsum.slo.responses", "mode", "full").count()).isEqualTo(1.0);
+        verify(realService, times(2)).summarize(any(CvDocument.class), anyList(), any(ProgressListener.class));
+    }
+
+    private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CandidateSearchResponse;
+import com.example.cvsum.backend.model.CvDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CvSearchServiceTest {
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void shouldRankCandidatesAndSurviveRestart() {
+        CvSearchService service = newService();
+        service.index("job-1", "alice.pdf", CvDocument.of("Senior engineer with 7 years of Java.\nRuns Kubernetes clusters in production for payments."));
+        service.index("job-2", "bob.pdf", CvDocument.of("Frontend developer focused on Angular and TypeScript.\nSome exposure to Java tooling."));
+        service.index("job-3", "carol.pdf", CvDocument.of("Data analyst working with SQL, Python and dashboards.\nMentors junior analysts."));
+
+        CandidateSearchResponse beforeFlush = service.search("Kubernetes Java", 10);
+        assertThat(beforeFlush.hits()).extracting(CandidateSearchResponse.Hit::jobId).containsExactly("job-1", "job-2");
+        assertThat(beforeFlush.hits().get(0).citations()).anyMatch(citation -> citation.contains("Kubernetes"));
+
+        service.shutdown();
+
+        CvSearchService reopened = newService();
+        CandidateSearchResponse afterRestart = reopened.search("kubernetes java", 10);
+        assertThat(afterRestart.hits()).extracting(CandidateSearchResponse.Hit::fileName).containsExactly("alice.pdf", "bob.pdf");
+        reopened.shutdown();
+    }
+
+    @Test
+    void shouldMergeSegmentsWithoutLosingCandidates() throws Exception {
+        CvSearchService service = newService(1, 2);
+        for (int i = 1; i <= 6; i++) {
+            service.index("job-" + i, "cv-" + i + ".pdf", CvDocument.of("Candidate number " + i + " has strong Kotlin experience."));
+        }
+        service.shutdown();
+
+        CvSearchService reopened = newService(1, 2);
+        assertThat(reopened.search("kotlin", 50).hits()).hasSize(6);
+        try (Stream<Path> files = Files.list(indexDir)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".seg"))).hasSizeLessThanOrEqualTo(2);
+        }
+        reopened.shutdown();
+    }
+
+    @Test
+    void shouldScoreOnlyLatestCopyOfReindexedKey() {
+        CvSearchService service = newService();
+        service.index("job-1", "alice.pdf", CvDocument.of("Backend engineer with Kotlin and Kafka."));
+        service.shutdown();
+
+        CvSearchService reopened = newService();
+        reopened.index("job-1", "alice-v2.pdf", CvDocument.of("Backend engineer with Java and Kafka."));
+        reopened.index("job-2", "bob.pdf", CvDocument.of("Mobile developer writing Kotlin every day."));
+        CandidateSearchResponse kotlin = reopened.search("kotlin", 10);
+        CandidateSearchResponse kafka = reopened.search("kafka", 10);
+        reopened.shutdown();
+
+        assertThat(kotlin.totalCandidates()).isEqualTo(1);
+        assertThat(kotlin.hits()).extracting(CandidateSearchResponse.Hit::jobId).containsExactly("job-2");
+        assertThat(kafka.hits()).extracting(CandidateSearchResponse.Hit::fileName).containsExactly("alice-v2.pdf");
+
+        CvSearchService fresh = new CvSearchService(new SimpleMeterRegistry(), true, indexDir.resolve("fresh").toString(), 100, 3600, 8, 2, 50);
+        fresh.index("job-1", "alice-v2.pdf", CvDocument.of("Backend engineer with Java and Kafka."));
+        fresh.index("job-2", "bob.pdf", CvDocument.of("Mobile developer writing Kotlin every day."));
+        assertThat(kotlin.hits().get(0).score()).isEqualTo(fresh.search("kotlin", 10).hits().get(0).score());
+        fresh.shutdown();
+    }
+
+    private CvSearchService newService() {
+        return newService(100, 8);
+    }
+
+    private CvSearchService newService(int flushDocs, int maxSegments) {
+        return new CvSearchService(new SimpleMeterRegistry(), true, indexDir.toString(), flushDocs, 3600, maxSegments, 2, 50);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.DocumentCreatedResponse;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.example.cvsum.backend.util.PdfTextExtractor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DocumentSessionServiceTest {
+
+    private static final String CV_TEXT = "Senior engineer with 8 years of Java and Kubernetes experience.\n"
+            + "Deployed payment services on AWS and Google Cloud.";
+
+    private final PdfTextExtractor pdfTextExtractor = mock(PdfTextExtractor.class);
+    private final MockCvSummarizerService mockService = spy(new MockCvSummarizerService());
+    private final CvProcessingJobService jobService = mock(CvProcessingJobService.class);
+    private DocumentSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        given(jobService.summarize(any(JobPayload.class), isNull())).willAnswer(invocation -> {
+            JobPayload payload = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(
+                    mockService.summarize(CvDocument.of(CV_TEXT), payload.questions(), ProgressListener.NO_OP));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldOnlyRunQuestionsThatWereNotAnsweredBefore() {
+        service = newService(1800, 10, 64);
+        given(pdfTextExtractor.extractText(any(byte[].class))).willReturn(CV_TEXT);
+        DocumentCreatedResponse created = service.create(new byte[]{1}, "cv.pdf");
+        assertThat(created.snippetCount()).isEqualTo(2);
+
+        service.ask(created.documentId(), List.of("How many years of Java?"), true).join();
+        SummarizeResponse followUp = service.ask(created.documentId(), List.of("How many years of Java?", "Which cloud platforms?"), true).join();
+
+        assertThat(followUp.answers()).extracting(SummarizeResponse.AnswerItem::question)
+                .containsExactly("How many years of Java?", "Which cloud platforms?");
+        ArgumentCaptor<JobPayload> payloads = ArgumentCaptor.forClass(JobPayload.class);
+        verify(jobService, times(2)).summarize(payloads.capture(), isNull());
+        assertThat(payloads.getAllValues()).extracting(JobPayload::questions)
+                .containsExactly(List.of("How many years of Java?"), List.of("Which cloud platforms?"));
+        assertThat(payloads.getAllValues()).extracting(JobPayload::documentId).containsOnly(created.documentId());
+        assertThat(payloads.getAllValues()).extracting(JobPayload::pdfBytes).containsOnlyNulls();
+        assertThat(payloads.getAllValues()).extracting(payload -> payload.document().text()).containsOnly(CvDocument.of(CV_TEXT).text());
+        verify(pdfTextExtractor, times(1)).extractText(any(byte[].class));
+    }
+
+    @Test
+    void shouldNotCacheDegradedAnswers() {
+        service = newService(1800, 10, 64);
+        given(pdfTextExtractor.extractText(any(byte[].class))).willReturn(CV_TEXT);
+        String documentId = service.create(new byte[]{1}, "cv.pdf").documentId();
+        SummarizeResponse extractive = new SummarizeResponse(false, "extract",
+                List.of(new SummarizeResponse.AnswerItem("Which cloud platforms?", "AWS", 0.4, List.of())), "extractive-citations-v1",
+                null, new SummarizeResponse.Degraded("slow", 90, 60, false));
+        given(jobService.summarize(any(JobPayload.class), isNull())).willReturn(CompletableFuture.completedFuture(extractive));
+
+        assertThat(service.ask(documentId, List.of("Which cloud platforms?"), false).join().degraded()).isNotNull();
+        service.ask(documentId, List.of("Which cloud platforms?"), false).join();
+
+        verify(jobService, times(2)).summarize(any(JobPayload.class), isNull());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedDocumentsBeyondCapacity() {
+        service = newService(1800, 2, 64);
+        given(pdfTextExtractor.extractText(any(byte[].class))).willReturn(CV_TEXT);
+        String first = service.create(new byte[]{1}, "a.pdf").documentId();
+        String second = service.create(new byte[]{2}, "b.pdf").documentId();
+        service.ask(first, List.of("Which cloud platforms?"), true).join();
+        service.create(new byte[]{3}, "c.pdf");
+
+        assertThat(service.openSessionCount()).isEqualTo(2);
+        assertThat(service.ask(first, List.of("Which cloud platforms?"), true).join().answers()).hasSize(1);
+        assertThatThrownBy(() -> service.ask(second, List.of("Which cloud platforms?"), true))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void shouldExpireIdleDocuments() throws Exception {
+        service = newService(1, 10, 64);
+        given(pdfTextExtractor.extractText(any(byte[].class))).willReturn(CV_TEXT);
+        String documentId = service.create(new byte[]{1}, "cv.pdf").documentId();
+
+        Thread.sleep(1100);
+        service.reapIdleSessions();
+
+        assertThat(service.openSessionCount()).isZero();
+        assertThatThrownBy(() -> service.ask(documentId, List.of("Which cloud platforms?"), true))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private DocumentSessionService newService(int idleTimeoutSeconds, int maxDocuments, int maxMemoryMb) {
+        return new DocumentSessionService(
+                pdfTextExtractor,
+                jobService,
+                new SimpleMeterRegistry(),
+                idleTimeoutSeconds,
+                maxDocuments,
+                maxMemoryMb
+        );
+    }
+}
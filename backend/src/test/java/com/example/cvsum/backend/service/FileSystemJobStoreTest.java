@@ -0,0 +1,162 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSystemJobStoreTest {
+
+    @TempDir
+    Path sharedDir;
+
+    @Test
+    void shouldShareJobsBetweenNodesAndHandOverExpiredLeases() throws Exception {
+        FileSystemJobStore nodeA = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+        FileSystemJobStore nodeB = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+
+        nodeA.create(JobRecord.queued("job-1"), new JobPayload("pdf".getBytes(), "cv.pdf", List.of("Skills?"), true));
+        nodeA.enqueue("job-1");
+        assertThat(nodeB.find("job-1")).map(JobRecord::message).contains("Job accepted.");
+        assertThat(nodeB.payload("job-1")).map(JobPayload::fileName).contains("cv.pdf");
+
+        Optional<JobLease> leaseA = nodeA.lease("node-a", Duration.ofMillis(200), Duration.ZERO);
+        assertThat(leaseA).map(JobLease::attempt).contains(1);
+        assertThat(nodeB.lease("node-b", Duration.ofMillis(200), Duration.ZERO)).isEmpty();
+        assertThat(nodeA.renew(leaseA.get(), Duration.ofMillis(50))).isPresent();
+
+        nodeA.save(JobRecord.queued("job-1").withProgress(JobStatus.RUNNING, 40, "Generating."));
+        assertThat(nodeB.find("job-1")).map(JobRecord::progress).contains(40);
+
+        Thread.sleep(80);
+        Optional<JobLease> leaseB = nodeB.lease("node-b", Duration.ofSeconds(5), Duration.ZERO);
+        assertThat(leaseB).map(JobLease::nodeId).contains("node-b");
+        assertThat(leaseB).map(JobLease::attempt).contains(2);
+        assertThat(nodeA.renew(leaseA.get(), Duration.ofSeconds(5))).isEmpty();
+
+        nodeB.release(leaseB.get());
+        assertThat(nodeA.lease("node-a", Duration.ofSeconds(5), Duration.ZERO)).isEmpty();
+        assertThat(nodeA.depth()).isZero();
+    }
+
+    @Test
+    void shouldNeverHandOutTheSameJobToTwoProcesses() throws Exception {
+        FileSystemJobStore store = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+        int jobCount = 300;
+        for (int i = 0; i < jobCount; i++) {
+            store.enqueue(String.format("job-%03d", i));
+        }
+
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process contender = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                LeaseContender.class.getName(), sharedDir.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        List<String> leasedByOther = new ArrayList<>();
+        List<String> leasedHere = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(contender.getInputStream(), StandardCharsets.UTF_8));
+             Writer in = contender.outputWriter(StandardCharsets.UTF_8)) {
+            assertThat(out.readLine()).isEqualTo("READY");
+            in.write("GO\n");
+            in.flush();
+
+            Optional<JobLease> lease;
+            while ((lease = store.lease("node-a", Duration.ofMinutes(1), Duration.ZERO)).isPresent()) {
+                leasedHere.add(lease.get().jobId());
+            }
+            String line;
+            while ((line = out.readLine()) != null) {
+                leasedByOther.add(line);
+            }
+        } finally {
+            assertThat(contender.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(leasedByOther).isNotEmpty();
+        Set<String> all = new HashSet<>(leasedHere);
+        all.addAll(leasedByOther);
+        assertThat(leasedHere.size() + leasedByOther.size()).isEqualTo(jobCount);
+        assertThat(all).hasSize(jobCount);
+    }
+
+    @Test
+    void shouldChangeStateVersionOnEveryUpdateWithinOneMtimeTick() throws Exception {
+        FileSystemJobStore store = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+        JobRecord running = JobRecord.queued("job-1").withProgress(JobStatus.RUNNING, 90, "Almost done.");
+        store.create(running, new JobPayload("pdf".getBytes(), "cv.pdf", List.of("Skills?"), true));
+        Path state = sharedDir.resolve("jobs").resolve("job-1").resolve("state.json");
+        FileTime tick = Files.getLastModifiedTime(state);
+        long before = store.stateVersion("job-1");
+
+        store.save(running.failed("Broken PDF."));
+        Files.setLastModifiedTime(state, tick);
+
+        assertThat(store.stateVersion("job-1")).isGreaterThan(before);
+    }
+
+    @Test
+    void shouldKeepExtractedSessionDocumentInsteadOfPdf() {
+        FileSystemJobStore store = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+        CvDocument document = CvDocument.of("Senior engineer with 8 years of Java.\nDeployed payment services on AWS.");
+        store.create(JobRecord.queued("job-1"), new JobPayload(document, "cv.pdf", List.of("Skills?"), false, "doc-1"));
+
+        JobPayload stored = store.payload("job-1").orElseThrow();
+
+        assertThat(Files.exists(sharedDir.resolve("jobs").resolve("job-1").resolve("payload.pdf"))).isFalse();
+        assertThat(stored.pdfBytes()).isNull();
+        assertThat(stored.documentId()).isEqualTo("doc-1");
+        assertThat(stored.document().text()).isEqualTo(document.text());
+        assertThat(stored.document().snippetOffsets()).containsExactly(document.snippetOffsets());
+    }
+
+    @Test
+    void shouldPurgeOnlyExpiredUnleasedJobs() throws Exception {
+        FileSystemJobStore store = new FileSystemJobStore(new ObjectMapper(), sharedDir, Duration.ofMillis(20));
+        JobPayload payload = new JobPayload("pdf".getBytes(), "cv.pdf", List.of("Skills?"), true);
+        store.create(JobRecord.queued("done").failed("Broken PDF."), payload);
+        store.create(JobRecord.queued("leased").failed("Broken PDF."), payload);
+        store.create(JobRecord.queued("queued"), payload);
+        store.enqueue("leased");
+        assertThat(store.lease("node-a", Duration.ofMinutes(1), Duration.ZERO)).isPresent();
+
+        assertThat(store.purge(System.currentTimeMillis() - 60_000)).isZero();
+        assertThat(store.purge(System.currentTimeMillis() + 1_000)).isEqualTo(1);
+        assertThat(store.find("done")).isEmpty();
+        assertThat(Files.exists(sharedDir.resolve("jobs").resolve("done"))).isFalse();
+        assertThat(store.find("leased")).isPresent();
+        assertThat(store.find("queued")).isPresent();
+    }
+
+    static class LeaseContender {
+
+        public static void main(String[] args) throws Exception {
+            FileSystemJobStore store = new FileSystemJobStore(new ObjectMapper(), Path.of(args[0]), Duration.ofMillis(20));
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            System.out.println("READY");
+            System.out.flush();
+            in.readLine();
+            Optional<JobLease> lease;
+            while ((lease = store.lease("node-b", Duration.ofMinutes(1), Duration.ZERO)).isPresent()) {
+                System.out.println(lease.get().jobId());
+            }
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.SummarizeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InferenceSloControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldDegradeWhenQueuedWorkWouldMissTarget() {
+        InferenceSloController controller = new InferenceSloController(meterRegistry, true, 10, 300, 3, true, 1);
+        long now = System.currentTimeMillis();
+        controller.finished(now - 2_000, now - 2_000);
+        controller.finished(now - 3_000, now - 3_000);
+        assertThat(controller.predictedLatencyMillis(100, 1)).isZero();
+
+        controller.finished(now - 4_000, now - 4_000);
+        assertThat(controller.latencyP95Millis()).isGreaterThanOrEqualTo(4_000);
+        assertThat(controller.shouldDegrade(controller.predictedLatencyMillis(0, 2))).isFalse();
+        long predicted = controller.predictedLatencyMillis(4, 2);
+        assertThat(predicted).isGreaterThanOrEqualTo(12_000);
+        assertThat(controller.shouldDegrade(predicted)).isTrue();
+
+        SummarizeResponse degraded = controller.degrade(
+                new SummarizeResponse(false, "extract", List.of(), "extractive-citations-v1"), predicted);
+        assertThat(degraded.degraded().upgradePending()).isTrue();
+        assertThat(degraded.degraded().targetP95Seconds()).isEqualTo(10.0);
+        assertThat(controller.withoutPendingUpgrade(degraded).degraded().upgradePending()).isFalse();
+        assertThat(meterRegistry.counter("cvsum.slo.responses", "mode", "degraded").count()).isZero();
+
+        controller.responded(true);
+        assertThat(meterRegistry.counter("cvsum.slo.responses", "mode", "degraded").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("cvsum.slo.responses", "mode", "full").count()).isZero();
+    }
+
+    @Test
+    void shouldReleaseUpgradesOnlyAfterLatencyRecovers() throws Exception {
+        InferenceSloController controller = new InferenceSloController(meterRegistry, true, 1, 1, 1, true, 1);
+        long now = System.currentTimeMillis();
+        controller.finished(now - 5_000, now - 5_000);
+        controller.scheduleUpgrade("job-1");
+        controller.scheduleUpgrade("job-2");
+
+        assertThat(controller.releaseUpgrades(controller.predictedLatencyMillis(0, 1))).isEmpty();
+
+        Thread.sleep(1100);
+        assertThat(controller.releaseUpgrades(controller.predictedLatencyMillis(0, 1))).containsExactly("job-1");
+        assertThat(controller.releaseUpgrades(0)).isEmpty();
+        assertThat(controller.dispatchedUpgrades()).containsExactly("job-1");
+
+        controller.upgradeFinished("job-1", true);
+        controller.upgradeFinished("job-1", true);
+        assertThat(controller.releaseUpgrades(0)).containsExactly("job-2");
+        assertThat(controller.pendingUpgradeCount()).isZero();
+        assertThat(meterRegistry.counter("cvsum.slo.upgrades", "outcome", "completed").count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cvsum.backend.service;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateServiceTest {
+
+    private static final String CV = "Senior backend engineer with eight years of Java and Spring Boot experience. "
+            + "Built event driven payment services on Kafka and PostgreSQL for a European bank. "
+            + "Led a team of six engineers and introduced contract testing across twelve services. "
+            + "Deployed workloads on Kubernetes in AWS with Terraform and ArgoCD pipelines. "
+            + "Speaks English, German and Polish and mentors junior developers every week.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReanswerOnlyNewQuestionsAndQuestionsWithInvalidatedCitations() {
+        NearDuplicateService service = service(tempDir, 100);
+        service.summarize("job-1", CvDocument.of(CV), List.of("Cloud?", "Languages?"), false,
+                questions -> response(false, questions, question -> question.equals("Cloud?")
+                        ? "Deployed workloads on Kubernetes in AWS with Terraform and ArgoCD pipelines."
+                        : "Speaks English, German and Polish and mentors junior developers every week."));
+
+        String edited = CV.replace("English, German and Polish", "English and French");
+        List<List<String>> calls = new ArrayList<>();
+        SummarizeResponse result = service.summarize("job-2", CvDocument.of(edited),
+                List.of("Cloud?", "Languages?", "Team size?"), false,
+                questions -> {
+                    calls.add(questions);
+                    return response(false, questions, question -> "fresh " + question);
+                });
+
+        assertThat(calls).containsExactly(List.of("Languages?", "Team size?"));
+        assertThat(result.nearDuplicate().matchedJobId()).isEqualTo("job-1");
+        assertThat(result.nearDuplicate().reusedAnswers()).isEqualTo(1);
+        assertThat(result.nearDuplicate().reansweredQuestions()).isEqualTo(2);
+        assertThat(result.answers()).extracting(SummarizeResponse.AnswerItem::question)
+                .containsExactly("Cloud?", "Languages?", "Team size?");
+        assertThat(result.answers().get(0).answer()).isEqualTo("answer Cloud?");
+        assertThat(result.answers().get(1).answer()).isEqualTo("answer Languages?");
+    }
+
+    @Test
+    void shouldMatchCandidateOfSameModeEvenWhenOtherModeIsCloser() {
+        NearDuplicateService service = service(tempDir, 100);
+        String variant = CV.replace("every week", "every second week");
+        service.summarize("real", CvDocument.of(variant), List.of("Cloud?"), false,
+                questions -> response(false, questions, question -> "Deployed workloads on Kubernetes"));
+        service.summarize("mock", CvDocument.of(CV), List.of("Cloud?"), true,
+                questions -> response(true, questions, question -> "Deployed workloads on Kubernetes"));
+
+        SummarizeResponse result = service.summarize("job-3", CvDocument.of(CV), List.of("Cloud?"), false,
+                questions -> {
+                    throw new AssertionError("Expected answers to be reused");
+                });
+
+        assertThat(result.mockMode()).isFalse();
+        assertThat(result.nearDuplicate().matchedJobId()).isEqualTo("real");
+        assertThat(result.nearDuplicate().similarity()).isLessThan(1.0);
+    }
+
+    @Test
+    void shouldReturnResultWhenStoreCannotBeWritten() throws Exception {
+        Path storage = tempDir.resolve("dedup");
+        Files.createDirectories(storage);
+        Files.writeString(storage.resolve("results"), "not a directory");
+        NearDuplicateService service = service(storage, 100);
+
+        SummarizeResponse result = service.summarize("job-1", CvDocument.of(CV), List.of("Cloud?"), false,
+                questions -> response(false, questions, question -> "Kubernetes"));
+
+        assertThat(result.answers()).hasSize(1);
+        assertThat(meterRegistry.counter("cvsum.dedup.store.failures").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldPruneOldestResultsBeyondMaxEntries() throws Exception {
+        NearDuplicateService service = service(tempDir, 2);
+        List<String> cvs = List.of(CV, CV.replace("Java", "Kotlin"), CV.replace("Kafka", "RabbitMQ"));
+        for (int i = 0; i < cvs.size(); i++) {
+            service.summarize("job-" + i, CvDocument.of("Candidate " + i + ". " + cvs.get(i)), List.of("Cloud?"), false,
+                    questions -> response(false, questions, question -> "Kubernetes"));
+            Files.setLastModifiedTime(tempDir.resolve("results").resolve("job-" + i + ".json"),
+                    FileTime.fromMillis(System.currentTimeMillis() - (3 - i) * 60_000L));
+        }
+
+        service.prune();
+
+        assertThat(tempDir.resolve("results").resolve("job-0.json")).doesNotExist();
+        assertThat(tempDir.resolve("results").resolve("job-2.json")).exists();
+        NearDuplicateService reloaded = service(tempDir, 2);
+        SummarizeResponse result = reloaded.summarize("job-3", CvDocument.of("Candidate 0. " + CV), List.of("Cloud?"), false,
+                questions -> response(false, questions, question -> "Kubernetes"));
+        assertThat(result.nearDuplicate()).satisfiesAnyOf(
+                nearDuplicate -> assertThat(nearDuplicate).isNull(),
+                nearDuplicate -> assertThat(nearDuplicate.matchedJobId()).isNotEqualTo("job-0"));
+        assertThat(meterRegistry.counter("cvsum.dedup.pruned").count()).isGreaterThanOrEqualTo(1.0);
+    }
+
+    private NearDuplicateService service(Path storage, int maxEntries) {
+        return new NearDuplicateService(new ObjectMapper(), meterRegistry, true, 0.6, true,
+                storage.toString(), 5, 32, 4, maxEntries, 30);
+    }
+
+    private SummarizeResponse response(boolean mock, List<String> questions, Function<String, String> citation) {
+        List<SummarizeResponse.AnswerItem> answers = questions.stream()
+                .map(question -> new SummarizeResponse.AnswerItem(question, "answer " + question, 0.8,
+                        List.of(citation.apply(question))))
+                .toList();
+        return new SummarizeResponse(mock, "summary", answers, mock ? "mock" : "real");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.cvsum.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProgressStreamRegistryTest {
+
+    private final ProgressStreamRegistry registry = new ProgressStreamRegistry(new SimpleMeterRegistry(), 60, 300, 1800, 2, 3, 60);
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldEnforcePerJobAndGlobalStreamLimits() {
+        open("job-1");
+        open("job-1");
+        assertThatThrownBy(() -> open("job-1"))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+        open("job-2");
+        assertThatThrownBy(() -> open("job-3")).isInstanceOf(ResponseStatusException.class);
+        assertThat(registry.openStreamCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldReleaseStreamsWhenJobCompletes() {
+        open("job-1");
+        open("job-1");
+
+        registry.completeAll("job-1");
+
+        assertThat(registry.openStreamCount()).isZero();
+        open("job-1");
+        assertThat(registry.openStreamCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepStreamThatStillReceivesHeartbeats() throws Exception {
+        ProgressStreamRegistry fastRegistry = new ProgressStreamRegistry(new SimpleMeterRegistry(), 1, 1, 1800, 2, 3, 0);
+        try {
+            fastRegistry.open("queued-job", -1L, List.of(), false);
+
+            Thread.sleep(3_500);
+
+            assertThat(fastRegistry.openStreamCount()).isEqualTo(1);
+        } finally {
+            fastRegistry.shutdown();
+        }
+    }
+
+    private SseEmitter open(String jobId) {
+        return registry.open(jobId, -1L, List.of(), false);
+    }
+}
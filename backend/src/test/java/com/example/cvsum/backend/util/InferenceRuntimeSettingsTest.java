@@ -0,0 +1,50 @@
+package com.example.cvsum.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InferenceRuntimeSettingsTest {
+
+    @Test
+    void shouldDeriveWorkerCountFromAvailableCores() {
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("auto", "optimized", true, true, 0, 0, 16, 0, 1, "logprob");
+
+        assertThat(settings.getThreadsPerWorker()).isEqualTo(4);
+        assertThat(settings.getMaxWorkers()).isEqualTo(4);
+        assertThat(settings.workerEnvironment(2))
+                .containsEntry("CVSUM_CPU_THREADS", "4")
+                .containsEntry("OMP_NUM_THREADS", "4")
+                .containsEntry("CVSUM_CPU_AFFINITY", "8-11")
+                .containsEntry("CVSUM_CONFIDENCE_MODE", "logprob");
+    }
+
+    @Test
+    void shouldNotPinCoresForStandardProfile() {
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", true, true, 2, 3, 4, 0, 1, "softmax");
+
+        assertThat(settings.getThreadsPerWorker()).isEqualTo(2);
+        assertThat(settings.getMaxWorkers()).isEqualTo(3);
+        assertThat(settings.workerEnvironment(1))
+                .containsEntry("CVSUM_DEVICE", "cpu")
+                .containsEntry("CVSUM_CPU_AFFINITY", "")
+                .containsEntry("CVSUM_CONFIDENCE_MODE", "softmax")
+                .doesNotContainKeys("OMP_NUM_THREADS", "MKL_NUM_THREADS");
+    }
+
+    @Test
+    void shouldCapWorkersPerGpuDevice() {
+        InferenceRuntimeSettings cuda = new InferenceRuntimeSettings("cuda", "standard", false, false, 0, 0, 32, 0, 1, "logprob");
+        assertThat(cuda.getGpuDevices()).isEqualTo(1);
+        assertThat(cuda.getMaxWorkers()).isEqualTo(1);
+
+        InferenceRuntimeSettings twoGpus = new InferenceRuntimeSettings("auto", "standard", false, false, 0, 12, 32, 2, 2, "logprob");
+        assertThat(twoGpus.getMaxWorkers()).isEqualTo(4);
+        assertThat(twoGpus.workerEnvironment(0)).containsKey("CUDA_VISIBLE_DEVICES");
+
+        InferenceRuntimeSettings cpu = new InferenceRuntimeSettings("cpu", "standard", false, false, 0, 0, 32, 2, 1, "logprob");
+        assertThat(cpu.getGpuDevices()).isZero();
+        assertThat(cpu.getMaxWorkers()).isEqualTo(8);
+        assertThat(cpu.workerEnvironment(0)).doesNotContainKey("CUDA_VISIBLE_DEVICES");
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.cvsum.backend.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InferenceWorkerPoolTest {
+
+    private static final String SERVE_SCRIPT = """
+            echo 'READY:{}' >&2
+            while IFS= read -r line; do
+              echo 'PROGRESS:{"progress":50,"message":"Generating answer 1/1."}' >&2
+              sleep 0.3
+              echo '{"summary":"ok","answers":[],"runtime":{"device":"cpu"}}'
+            done
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InferenceWorkerPool pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldReportReadyOnlyAfterPrewarmedWorkerLoaded() throws Exception {
+        pool = newPool(SERVE_SCRIPT, 1, 0, 300);
+        awaitReady();
+
+        List<Integer> progress = new CopyOnWriteArrayList<>();
+        JsonNode result = pool.execute("{}", (value, message) -> progress.add(value));
+
+        assertThat(result.path("summary").asText()).isEqualTo("ok");
+        assertThat(progress).contains(50);
+        assertThat(meterRegistry.counter("cvsum.inference.pool.requests", "start", "warm").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldScaleUpWithDemandAndBackToZeroWhenIdle() throws Exception {
+        pool = newPool(SERVE_SCRIPT, 0, 0, 1);
+        assertThat(pool.workerCount()).isZero();
+
+        CompletableFuture<JsonNode> first = CompletableFuture.supplyAsync(() -> pool.execute("{}", (value, message) -> { }));
+        CompletableFuture<JsonNode> second = CompletableFuture.supplyAsync(() -> pool.execute("{}", (value, message) -> { }));
+        CompletableFuture.allOf(first, second).join();
+
+        assertThat(pool.workerCount()).isEqualTo(2);
+        assertThat(meterRegistry.counter("cvsum.inference.pool.scale", "direction", "up", "reason", "demand").count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.counter("cvsum.inference.pool.requests", "start", "cold").count()).isEqualTo(2.0);
+
+        Thread.sleep(1100);
+        pool.maintain();
+
+        assertThat(pool.workerCount()).isZero();
+        assertThat(meterRegistry.counter("cvsum.inference.pool.scale", "direction", "down", "reason", "idle").count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldReportReadyWithoutPrewarmOnlyAfterLazyWarmUpLoaded() throws Exception {
+        pool = newPool(SERVE_SCRIPT, 0, 0, 1);
+        assertThat(pool.isReady()).isFalse();
+
+        awaitReady();
+        assertThat(meterRegistry.counter("cvsum.inference.pool.scale", "direction", "up", "reason", "warmup").count())
+                .isEqualTo(1.0);
+
+        Thread.sleep(1100);
+        pool.maintain();
+        assertThat(pool.workerCount()).isZero();
+        assertThat(pool.isReady()).isTrue();
+    }
+
+    @Test
+    void shouldNotReportReadyWhenLazyWarmUpFails() throws Exception {
+        pool = newPool("echo 'model not found' >&2\nexit 1\n", 0, 0, 300);
+        assertThat(pool.isReady()).isFalse();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.counter("cvsum.inference.pool.start.failures").count() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(meterRegistry.counter("cvsum.inference.pool.start.failures").count()).isGreaterThanOrEqualTo(1.0);
+        assertThat(pool.isReady()).isFalse();
+    }
+
+    @Test
+    void shouldDeriveReadinessFromLiveWorkers() throws Exception {
+        pool = newPool("""
+                echo 'READY:{}' >&2
+                IFS= read -r line
+                echo '{"summary":"ok","answers":[],"runtime":{"device":"cpu"}}'
+                """, 1, 0, 1);
+        awaitReady();
+
+        pool.execute("{}", (value, message) -> { });
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.liveWorkerCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(pool.isReady()).isFalse();
+
+        Thread.sleep(1100);
+        pool.maintain();
+        awaitReady();
+        assertThat(pool.workerCount()).isEqualTo(1);
+        assertThat(meterRegistry.counter("cvsum.inference.pool.scale", "direction", "up", "reason", "minimum").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldFailWaitingRequestWhenWorkerCannotStart() throws Exception {
+        pool = newPool("echo 'model not found' >&2\nexit 1\n", 0, 0, 300);
+
+        assertThatThrownBy(() -> pool.execute("{}", (value, message) -> { }))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("model not found");
+    }
+
+    private InferenceWorkerPool newPool(String script, int prewarmWorkers, int minWorkers, int idleSeconds) throws Exception {
+        Path scriptFile = tempDir.resolve("worker.sh");
+        Files.writeString(scriptFile, script);
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", false, false, 1, 2, 4, 0, 1, "logprob");
+        return new InferenceWorkerPool(
+                new ObjectMapper(),
+                settings,
+                meterRegistry,
+                "/bin/sh",
+                scriptFile.toString(),
+                10,
+                prewarmWorkers,
+                minWorkers,
+                idleSeconds,
+                10
+        );
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!pool.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(pool.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.cvsum.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashLshIndexTest {
+
+    private static final String CV = """
+            Jane Doe. Senior backend engineer with 8 years of Java and Spring Boot experience.
+            Led migration of a payments platform to Kubernetes and built event-driven services with Kafka.
+            Previously worked at Acme Corp as a software developer on billing and invoicing systems.
+            Education: MSc Computer Science, University of Amsterdam. Languages: English, Dutch, German.
+            Phone: +31 6 1234 5678. Interests: distributed systems, mentoring, open source contributions.
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldMatchLightlyEditedCvAndRejectUnrelatedText() {
+        MinHashLshIndex index = new MinHashLshIndex(5, 32, 4, null);
+        index.add("original", index.signature(CV));
+
+        String edited = CV.replace("+31 6 1234 5678", "+31 6 8765 4321");
+        List<MinHashLshIndex.Match> matches = index.findMatches(index.signature(edited), 0.7);
+        assertThat(matches).singleElement().satisfies(match -> {
+            assertThat(match.key()).isEqualTo("original");
+            assertThat(match.similarity()).isGreaterThan(0.7);
+        });
+
+        String unrelated = "Chef with 12 years of experience in French cuisine, pastry and restaurant management in Lyon.";
+        assertThat(index.findMatches(index.signature(unrelated), 0.7)).isEmpty();
+    }
+
+    @Test
+    void shouldReloadPersistedSignatures() {
+        Path file = tempDir.resolve("minhash.idx");
+        MinHashLshIndex index = new MinHashLshIndex(5, 32, 4, file);
+        index.add("original", index.signature(CV));
+
+        MinHashLshIndex reloaded = new MinHashLshIndex(5, 32, 4, file);
+
+        assertThat(reloaded.size()).isEqualTo(1);
+        assertThat(reloaded.findMatches(reloaded.signature(CV), 0.99))
+                .extracting(MinHashLshIndex.Match::key)
+                .containsExactly("original");
+    }
+}
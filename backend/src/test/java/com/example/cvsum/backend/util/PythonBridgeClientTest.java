@@ -0,0 +1,240 @@
+package com.example.cvsum.backend.util;
+
+import com.example.cvsum.backend.model.CvDocument;
+import com.example.cvsum.backend.model.SummarizeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class PythonBridgeClientTest {
+
+    private static final String MAP_REDUCE_SCRIPT = """
+            echo 'READY:{}' >&2
+            while IFS= read -r line; do
+              case "$line" in
+                *'"task":"reduce"'*)
+                  echo '{"summary":"combined summary","answers":[],"runtime":{"device":"cpu"}}' ;;
+                *Kubernetes*)
+                  sleep 0.3
+                  echo '{"summary":"ops part","answers":[{"question":"Q","answer":"Runs Kubernetes","tokenLogprob":{"mean":-0.05,"min":-0.2,"tokens":3},"citationOverlap":1.0,"citationSnippets":[1]}],"runtime":{"device":"cpu"}}' ;;
+                *)
+                  sleep 0.3
+                  echo '{"summary":"other part","answers":[{"question":"Q","answer":"Not mentioned","tokenLogprob":{"mean":-1.5,"min":-3.0,"tokens":3},"citationOverlap":0.0,"citationSnippets":[0]}],"runtime":{"device":"cpu"}}' ;;
+              esac
+            done
+            """;
+
+    private static final String UNANSWERED_SCRIPT = """
+            echo 'READY:{}' >&2
+            while IFS= read -r line; do
+              case "$line" in
+                *'"task":"reduce"'*)
+                  echo '{"summary":"combined summary","answers":[],"runtime":{"device":"cpu"}}' ;;
+                *)
+                  echo '{"summary":"part","answers":[{"question":"Q","answer":"I could not confidently extract this answer from the CV.","found":false,"tokenLogprob":{"mean":-1.0498,"min":-2.0,"tokens":4},"citationOverlap":0.0,"citationSnippets":[0]}],"runtime":{"device":"cpu"}}' ;;
+              esac
+            done
+            """;
+
+    private static final String FAILING_CHUNK_SCRIPT = """
+            echo 'READY:{}' >&2
+            while IFS= read -r line; do
+              case "$line" in
+                *Broken*)
+                  echo '{"error":"CUDA out of memory."}' ;;
+                *)
+                  sleep 5
+                  echo '{"summary":"part","answers":[],"runtime":{"device":"cpu"}}' ;;
+              esac
+            done
+            """;
+
+    private static final String OVERFLOWING_SCRIPT = """
+            echo 'READY:{}' >&2
+            while IFS= read -r line; do
+              case "$line" in
+                *'"task":"reduce"'*)
+                  echo '{"summary":"combined summary","answers":[],"runtime":{"device":"cpu"}}' ;;
+                *Kubernetes*)
+                  if [ ${#line} -gt 900 ]; then
+                    echo '{"error":"CV text has 400 tokens but only 300 fit in HF_MAX_INPUT_TOKENS=512.","errorType":"context_overflow"}'
+                  else
+                    echo '{"summary":"ops part","answers":[{"question":"Q","answer":"Runs Kubernetes","found":true,"confidence":0.9,"citationSnippets":[0]}],"runtime":{"device":"cpu"}}'
+                  fi ;;
+                *)
+                  echo '{"summary":"other part","answers":[{"question":"Q","answer":"I could not confidently extract this answer from the CV.","found":false,"confidence":0.35}],"runtime":{"device":"cpu"}}' ;;
+              esac
+            done
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldDeriveConfidenceFromTokenLogprobs() {
+        double certain = PythonBridgeClient.confidenceFromLogprobs(0.0, 0.0, 1.0);
+        double hesitant = PythonBridgeClient.confidenceFromLogprobs(Math.log(0.9), Math.log(0.01), 1.0);
+        double unsupported = PythonBridgeClient.confidenceFromLogprobs(Math.log(0.9), Math.log(0.01), 0.0);
+
+        assertThat(certain).isEqualTo(0.98, within(1e-9));
+        assertThat(hesitant).isLessThan(certain);
+        assertThat(unsupported).isLessThan(hesitant).isGreaterThanOrEqualTo(0.1);
+    }
+
+    @Test
+    void shouldMapLongDocumentChunksAcrossWorkersAndReduceAnswers() throws Exception {
+        Path scriptFile = tempDir.resolve("worker.sh");
+        Files.writeString(scriptFile, MAP_REDUCE_SCRIPT);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", false, false, 1, 2, 4, 0, 1, "logprob");
+        InferenceWorkerPool pool = new InferenceWorkerPool(
+                objectMapper, settings, meterRegistry, "/bin/sh", scriptFile.toString(), 10, 0, 0, 300, 10);
+        PythonBridgeClient client = new PythonBridgeClient(
+                objectMapper, settings, meterRegistry, pool, true, 1000, 2048, 3.0);
+
+        CvDocument document = CvDocument.of(longCv("Operates Kubernetes clusters for the payments platform.\n"));
+        List<String> messages = new CopyOnWriteArrayList<>();
+
+        try {
+            SummarizeResponse response = client.runInference(document, List.of("Q"), (value, message) -> messages.add(message));
+
+            CvDocument.Chunk opsChunk = document.chunks(1000).stream()
+                    .filter(chunk -> document.chunkText(chunk).contains("Kubernetes"))
+                    .findFirst()
+                    .orElseThrow();
+            assertThat(response.summary()).isEqualTo("combined summary");
+            assertThat(response.answers()).singleElement().satisfies(answer -> {
+                assertThat(answer.answer()).isEqualTo("Runs Kubernetes");
+                assertThat(answer.citations()).containsExactly(document.snippets().get(opsChunk.firstSnippet() + 1));
+            });
+            assertThat(pool.workerCount()).isEqualTo(2);
+            assertThat(meterRegistry.summary("cvsum.inference.document.chunks").max()).isGreaterThan(2.0);
+            assertThat(messages).anyMatch(message -> message.startsWith("CV part 1/"));
+        } finally {
+            client.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldDeriveChunkSizeFromTokenContext() {
+        assertThat(PythonBridgeClient.chunkChars(0, 2048, 3.0)).isEqualTo((2048 - PythonBridgeClient.PROMPT_RESERVE_TOKENS) * 3);
+        assertThat(PythonBridgeClient.chunkChars(20_000, 2048, 3.0)).isEqualTo((2048 - PythonBridgeClient.PROMPT_RESERVE_TOKENS) * 3);
+        assertThat(PythonBridgeClient.chunkChars(1000, 2048, 3.0)).isEqualTo(1000);
+    }
+
+    @Test
+    void shouldReportNotFoundWhenNoChunkAnswersQuestion() throws Exception {
+        Path scriptFile = tempDir.resolve("unanswered.sh");
+        Files.writeString(scriptFile, UNANSWERED_SCRIPT);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", false, false, 1, 2, 4, 0, 1, "logprob");
+        InferenceWorkerPool pool = new InferenceWorkerPool(
+                objectMapper, settings, meterRegistry, "/bin/sh", scriptFile.toString(), 10, 0, 0, 300, 10);
+        PythonBridgeClient client = new PythonBridgeClient(
+                objectMapper, settings, meterRegistry, pool, true, 1000, 2048, 3.0);
+
+        try {
+            SummarizeResponse response = client.runInference(CvDocument.of(longCv("")), List.of("Q"));
+
+            assertThat(response.answers()).singleElement().satisfies(answer -> {
+                assertThat(answer.question()).isEqualTo("Q");
+                assertThat(answer.answer()).isEqualTo(PythonBridgeClient.NOT_FOUND_ANSWER);
+                assertThat(answer.confidence()).isZero();
+            });
+        } finally {
+            client.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldStopSiblingChunksWhenOneChunkFails() throws Exception {
+        Path scriptFile = tempDir.resolve("failing.sh");
+        Files.writeString(scriptFile, FAILING_CHUNK_SCRIPT);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", false, false, 1, 2, 4, 0, 1, "logprob");
+        InferenceWorkerPool pool = new InferenceWorkerPool(
+                objectMapper, settings, meterRegistry, "/bin/sh", scriptFile.toString(), 10, 0, 0, 300, 10);
+        PythonBridgeClient client = new PythonBridgeClient(
+                objectMapper, settings, meterRegistry, pool, true, 1000, 2048, 3.0);
+
+        try {
+            CvDocument document = CvDocument.of("Broken header line.\n" + longCv(""));
+            assertThatThrownBy(() -> client.runInference(document, List.of("Q")))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (pool.busyWorkerCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(pool.busyWorkerCount()).isZero();
+        } finally {
+            client.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldSplitChunkThatOverflowsModelContextAndRetryHalves() throws Exception {
+        Path scriptFile = tempDir.resolve("overflowing.sh");
+        Files.writeString(scriptFile, OVERFLOWING_SCRIPT);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        InferenceRuntimeSettings settings = new InferenceRuntimeSettings("cpu", "standard", false, false, 1, 2, 4, 0, 1, "logprob");
+        InferenceWorkerPool pool = new InferenceWorkerPool(
+                objectMapper, settings, meterRegistry, "/bin/sh", scriptFile.toString(), 10, 0, 0, 300, 10);
+        PythonBridgeClient client = new PythonBridgeClient(
+                objectMapper, settings, meterRegistry, pool, true, 1000, 2048, 3.0);
+
+        try {
+            CvDocument document = CvDocument.of(
+                    longCv("") + longCv("Operates Kubernetes clusters for the payments platform.\n") + longCv(""));
+            SummarizeResponse response = client.runInference(document, List.of("Q"));
+
+            CvDocument.Chunk opsChunk = document.chunks(1000).stream()
+                    .filter(chunk -> document.chunkText(chunk).contains("Kubernetes"))
+                    .findFirst()
+                    .orElseThrow();
+            CvDocument.Chunk opsHalf = document.split(opsChunk).stream()
+                    .filter(chunk -> document.chunkText(chunk).contains("Kubernetes"))
+                    .findFirst()
+                    .orElseThrow();
+            assertThat(response.summary()).isEqualTo("combined summary");
+            assertThat(response.answers()).singleElement().satisfies(answer -> {
+                assertThat(answer.answer()).isEqualTo("Runs Kubernetes");
+                assertThat(answer.citations()).containsExactly(document.snippets().get(opsHalf.firstSnippet()));
+            });
+            assertThat(opsHalf.firstSnippet()).isGreaterThan(opsChunk.firstSnippet());
+            assertThat(meterRegistry.counter("cvsum.inference.document.chunk.splits").count()).isGreaterThanOrEqualTo(1.0);
+        } finally {
+            client.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    private static String longCv(String tail) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            raw.append("Filler sentence number ").append(i).append(" about general office work.\n");
+        }
+        return raw.append(tail).toString();
+    }
+}
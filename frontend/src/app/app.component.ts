@@ -86,7 +86,9 @@ export class AppComponent implements OnDestroy {
       this.progress = 100;
       this.progressMessage = 'Completed.';
       this.isLoading = false;
-      this.closeStream();
+      if (!data.degraded?.upgradePending) {
+        this.closeStream();
+      }
     });
 
     this.eventSource.addEventListener('failed', (event) => {
@@ -97,6 +99,9 @@ export class AppComponent implements OnDestroy {
     });
 
     this.eventSource.onerror = () => {
+      if (this.eventSource?.readyState === EventSource.CONNECTING) {
+        return;
+      }
       if (this.isLoading) {
         this.errorMessage = 'Progress stream disconnected.';
         this.isLoading = false;
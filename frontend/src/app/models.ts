@@ -5,11 +5,28 @@ export interface AnswerItem {
   citations: string[];
 }
 
+export interface NearDuplicateInfo {
+  matchedJobId: string;
+  similarity: number;
+  reusedAnswers: number;
+  reansweredQuestions: number;
+}
+
+export interface DegradedInfo {
+  reason: string;
+  latencyP95Seconds: number;
+  targetP95Seconds: number;
+  upgradePending: boolean;
+}
+
 export interface SummarizeResponse {
   mockMode: boolean;
   summary: string;
   answers: AnswerItem[];
   modelInfo: string;
+  nearDuplicate?: NearDuplicateInfo;
+  degraded?: DegradedInfo;
+  jobId?: string;
 }
 
 export interface JobCreatedResponse {